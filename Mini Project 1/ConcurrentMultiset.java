@@ -0,0 +1,407 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Implementazione:
+ * ConcurrentMultiset è un multiset thread-safe, pensato per essere riempito da più thread
+ * contemporaneamente senza dover costruire un MyMultiset per thread e unirli alla fine.
+ * Utilizza una ConcurrentHashMap con chiave "E" e valore AtomicInteger: le occorrenze di un
+ * elemento vengono aggiornate con compareAndSet, senza lock. Un contatore che arriva a 0 è
+ * "morto": viene tolto dalla mappa e chi lo trova ancora lì lo sostituisce con uno nuovo.
+ * Il numero totale di elementi è tenuto in un LongAdder, che distribuisce gli aggiornamenti
+ * su più celle, così che size() non diventi un punto di contesa tra i thread.
+ *
+ * Le operazioni sui singoli elementi sono atomiche. size(), elementSet(), l'iteratore,
+ * equals e hashCode sono invece debolmente consistenti: non lanciano mai
+ * ConcurrentModificationException e possono riflettere o meno le modifiche concorrenti.
+ *
+ * @param <E> il tipo degli elementi del multiset
+ */
+public class ConcurrentMultiset<E> implements Multiset<E> {
+
+    // Attributi della classe
+
+    // Mappa elemento -> occorrenze; un contatore a 0 indica un elemento in fase di rimozione.
+    private final ConcurrentHashMap<E, AtomicInteger> mappa;
+    // Numero totale di elementi presenti, tenendo conto delle occorrenze.
+    private final LongAdder elementiPresenti;
+
+    // Classe Iteratore, debolmente consistente
+    private class Itr implements Iterator<E> {
+        private final Iterator<Map.Entry<E, AtomicInteger>> iteratoreElementi = mappa.entrySet().iterator();
+
+        private E elementoCorrente;
+        private int occorrenzeElementoCorrente;
+        private Itr(){
+            elementoCorrente = null;
+            occorrenzeElementoCorrente = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Salto gli elementi rimossi nel frattempo, le cui occorrenze sono 0
+            while (occorrenzeElementoCorrente == 0 && iteratoreElementi.hasNext()) {
+                Map.Entry<E, AtomicInteger> entry = iteratoreElementi.next();
+                elementoCorrente = entry.getKey();
+                occorrenzeElementoCorrente = entry.getValue().get();
+            }
+            return occorrenzeElementoCorrente > 0;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            occorrenzeElementoCorrente--;
+            return elementoCorrente;
+        }
+    }
+
+    /**
+     * Crea un multiset vuoto.
+     */
+    public ConcurrentMultiset() {
+        mappa = new ConcurrentHashMap<>();
+        elementiPresenti = new LongAdder();
+    }
+
+    /**
+     * Restituisce il numero totale di elementi in questo multinsieme, contando
+     * tutte le occorrenze. In presenza di modifiche concorrenti il valore è una
+     * stima che non riflette necessariamente uno stato esatto del multinsieme.
+     *
+     * @return il numero totale di elementi in questo multinsieme, limitato a
+     *         {@code Integer.MAX_VALUE}
+     */
+    @Override
+    public int size() {
+        long totale = elementiPresenti.sum();
+        // Durante gli aggiornamenti concorrenti la somma può essere momentaneamente negativa
+        return (int) Math.max(0, Math.min(totale, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Restituisce il numero di occorrenze di un certo elemento in questo
+     * multinsieme.
+     *
+     * @param element
+     *                    l'elemento di cui contare le occorrenze
+     * @return il numero di occorrenze dell'elemento {@code element} in questo
+     *         multinsieme. Se l'elemento non è presente restituisce 0
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public int count(Object element) {
+        if (element == null)
+            throw new NullPointerException();
+        AtomicInteger contatore = mappa.get(element);
+        return contatore == null ? 0 : contatore.get();
+    }
+
+    /**
+     * Aggiunge atomicamente un numero di occorrenze di un certo elemento a
+     * questo multiset.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        aggiungere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica.
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo, o
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int add(E element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+        if (occurrences == 0)
+            return count(element);
+
+        while (true) {
+            AtomicInteger contatore = mappa.get(element);
+            if (contatore == null) {
+                contatore = mappa.putIfAbsent(element, new AtomicInteger(occurrences));
+                if (contatore == null) {
+                    elementiPresenti.add(occurrences);
+                    return 0;
+                }
+            }
+
+            int occorrenzePrecedenti = contatore.get();
+            while (occorrenzePrecedenti > 0) {
+                // la differenza tra Integer.MAX_VALUE e occorrenzePrecedenti
+                // da come risultato il numero di occorenze che possono ancora essere inserite
+                if (Integer.MAX_VALUE - occorrenzePrecedenti < occurrences)
+                    throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+                if (contatore.compareAndSet(occorrenzePrecedenti, occorrenzePrecedenti + occurrences)) {
+                    elementiPresenti.add(occurrences);
+                    return occorrenzePrecedenti;
+                }
+                occorrenzePrecedenti = contatore.get();
+            }
+
+            // Il contatore è morto: lo sostituisco con uno nuovo, altrimenti riprovo da capo
+            if (sostituisci(element, contatore, occurrences)) {
+                elementiPresenti.add(occurrences);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Aggiunge una singola occorrenza di un certo elemento a questo multiset.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere l'occorrenza
+     * @throws IllegalArgumentException
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public void add(E element) {
+        add(element, 1);
+    }
+
+    /**
+     * Rimuove atomicamente da questo multinsieme un dato numero di occorrenze
+     * di un elemento. Se il multinsieme contiene meno del dato numero di
+     * occorrenze, tutte le occorrenze verranno rimosse.
+     *
+     * @param element
+     *                        l'elemento di cui rimuovere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        rimuovere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int remove(Object element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0");
+
+        AtomicInteger contatore = mappa.get(element);
+        if (contatore == null)
+            return 0;
+
+        while (true) {
+            int occorrenzePrecedenti = contatore.get();
+            if (occorrenzePrecedenti == 0 || occurrences == 0)
+                return occorrenzePrecedenti;
+
+            int occorrenzeRimaste = Math.max(0, occorrenzePrecedenti - occurrences);
+            if (contatore.compareAndSet(occorrenzePrecedenti, occorrenzeRimaste)) {
+                // Se le occorrenze arrivano a 0 il contatore muore e viene tolto dalla mappa
+                if (occorrenzeRimaste == 0)
+                    mappa.remove(element, contatore);
+                elementiPresenti.add(occorrenzeRimaste - occorrenzePrecedenti);
+                return occorrenzePrecedenti;
+            }
+        }
+    }
+
+    /**
+     * Rimuove una singola occorrenza di un certo elemento da questo
+     * multinsieme, se esso è presente.
+     *
+     * @param element
+     *                    l'elemento di cui rimuovere l'occorrenza
+     * @return {@code true} se una occorrenza di {@code element} è stata
+     *         rimossa
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean remove(Object element) {
+        return remove(element, 1) > 0;
+    }
+
+    /**
+     * Aggiunge o rimuove atomicamente le occorrenze necessarie a un elemento
+     * in modo che esso raggiunga il conteggio desiderato.
+     *
+     * @param element
+     *                    l'elemento di cui aggiungere o rimuovere occorrenze
+     * @param count
+     *                    il numero di occorrenze da raggiungere
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code count} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int setCount(E element, int count) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (count < 0)
+            throw new IllegalArgumentException("Il numero di occorrenze non può essere minore di 0");
+
+        while (true) {
+            AtomicInteger contatore = mappa.get(element);
+            if (contatore == null) {
+                if (count == 0)
+                    return 0;
+                contatore = mappa.putIfAbsent(element, new AtomicInteger(count));
+                if (contatore == null) {
+                    elementiPresenti.add(count);
+                    return 0;
+                }
+            }
+
+            int occorrenzePrecedenti = contatore.get();
+            while (occorrenzePrecedenti > 0) {
+                if (contatore.compareAndSet(occorrenzePrecedenti, count)) {
+                    if (count == 0)
+                        mappa.remove(element, contatore);
+                    elementiPresenti.add(count - occorrenzePrecedenti);
+                    return occorrenzePrecedenti;
+                }
+                occorrenzePrecedenti = contatore.get();
+            }
+
+            // Il contatore è morto: l'elemento non è presente
+            if (count == 0)
+                return 0;
+            if (sostituisci(element, contatore, count)) {
+                elementiPresenti.add(count);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Restituisce una vista non modificabile dell'insieme di elementi
+     * distinti contenuti in questo multinsieme. La vista è debolmente
+     * consistente.
+     *
+     * @return l'insieme di elementi distinti in questo multinsieme
+     */
+    @Override
+    public Set<E> elementSet() {
+        return Collections.unmodifiableSet(mappa.keySet());
+    }
+
+    /**
+     * Restituisce un iteratore debolmente consistente per questo multinsieme.
+     * Le occorrenze dello stesso elemento vengono presentate in sequenza;
+     * l'iteratore non lancia mai {@code ConcurrentModificationException} e
+     * non implementa l'operazione {@code remove()}.
+     *
+     * @return un iteratore per questo multinsieme
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Determina se questo multinsieme contiene l'elemento specificato.
+     *
+     * @param element
+     *                    l'elemento da cercare
+     * @return {@code true} se questo multinsieme contiene almeno una occorrenza
+     *         di un elemento {@code e} tale che
+     *         {@code element.equals(e) == true}
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean contains(Object element) {
+        return count(element) > 0;
+    }
+
+    /**
+     * Rimuove tutti gli elementi da questo multinsieme. Le aggiunte concorrenti
+     * possono sopravvivere alla chiamata.
+     */
+    @Override
+    public void clear() {
+        for (E e : mappa.keySet())
+            setCount(e, 0);
+    }
+
+    /**
+     * Verifica se il multinsieme è vuoto.
+     *
+     * @return {@code true} se il multinsieme è vuoto, {@code false} altrimenti
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /*
+     * Due multinsiemi concorrenti sono uguali se e solo se contengono gli
+     * stessi elementi con le stesse occorrenze.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ConcurrentMultiset))
+            return false;
+
+        ConcurrentMultiset<?> temp = (ConcurrentMultiset<?>) obj;
+        if (temp.size() != this.size())
+            return false;
+
+        for (Map.Entry<E, AtomicInteger> entry : mappa.entrySet())
+            if (temp.count(entry.getKey()) != entry.getValue().get())
+                return false;
+        for (Map.Entry<?, AtomicInteger> entry : temp.mappa.entrySet())
+            if (this.count(entry.getKey()) != entry.getValue().get())
+                return false;
+        return true;
+    }
+
+    /*
+     * Stessa funzione di hash di MyMultiset.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+
+        for (Map.Entry<E, AtomicInteger> entry : mappa.entrySet()) {
+            int occorrenze = entry.getValue().get();
+            if (occorrenze > 0)
+                hash += 31 * entry.getKey().hashCode() + occorrenze;
+        }
+
+        return hash;
+    }
+
+    // Sostituisce un contatore morto con uno nuovo con n occorrenze.
+    // Restituisce false se un altro thread ha già inserito un contatore diverso.
+    private boolean sostituisci(E element, AtomicInteger morto, int n) {
+        AtomicInteger nuovo = new AtomicInteger(n);
+        return mappa.replace(element, morto, nuovo) || mappa.putIfAbsent(element, nuovo) == null;
+    }
+}
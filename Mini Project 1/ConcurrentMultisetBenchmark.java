@@ -0,0 +1,107 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Programma di misura per ConcurrentMultiset: confronta il suo throughput con quello di un
+ * MyMultiset condiviso il cui accesso è sincronizzato come nei wrapper Collections.synchronized*,
+ * cioè eseguendo ogni operazione dentro un blocco synchronized sull'oggetto stesso.
+ *
+ * Ogni thread esegue lo stesso numero di operazioni su chiavi casuali (80% add, 10% remove,
+ * 10% count). Al termine viene controllato che size() sia pari agli inserimenti meno le
+ * rimozioni andate a buon fine, così che la misura verifichi anche la correttezza.
+ *
+ * Uso: ConcurrentMultisetBenchmark [thread] [operazioni per thread] [chiavi] [ripetizioni], con
+ * valori predefiniti pari al numero di processori, 1000000, 4096 e 5. Il numero di thread va
+ * da 1 al massimo indicato raddoppiando; per ognuno viene stampato il risultato migliore.
+ */
+public class ConcurrentMultisetBenchmark {
+
+    private ConcurrentMultisetBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThread = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operazioni = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int numeroChiavi = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+        int ripetizioni = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Integer[] chiavi = new Integer[numeroChiavi];
+        for (int i = 0; i < numeroChiavi; i++)
+            chiavi[i] = i;
+
+        // Riscaldamento del JIT, il risultato viene scartato
+        esegui(new ConcurrentMultiset<>(), false, maxThread, operazioni, chiavi);
+        esegui(new MyMultiset<>(), true, maxThread, operazioni, chiavi);
+
+        System.out.printf("%-7s %18s %18s%n", "thread", "concurrent Mop/s", "synchronized Mop/s");
+        for (int t = 1; t <= maxThread; t = t == maxThread ? t + 1 : Math.min(2 * t, maxThread)) {
+            long concorrente = Long.MAX_VALUE;
+            long sincronizzato = Long.MAX_VALUE;
+            for (int r = 0; r < ripetizioni; r++) {
+                concorrente = Math.min(concorrente, esegui(new ConcurrentMultiset<>(), false, t, operazioni, chiavi));
+                sincronizzato = Math.min(sincronizzato, esegui(new MyMultiset<>(), true, t, operazioni, chiavi));
+            }
+            double totale = (double) t * operazioni * 1e3;
+            System.out.printf("%-7d %18.2f %18.2f%n", t, totale / concorrente, totale / sincronizzato);
+        }
+    }
+
+    // Restituisce il tempo in nanosecondi impiegato dai thread per eseguire le operazioni
+    private static long esegui(Multiset<Integer> multiset, boolean sincronizzato, int thread, int operazioni,
+                               Integer[] chiavi) throws InterruptedException {
+        AtomicLong attesi = new AtomicLong();
+        CountDownLatch partenza = new CountDownLatch(1);
+        Thread[] lavoratori = new Thread[thread];
+        for (int t = 0; t < thread; t++) {
+            long seme = t;
+            lavoratori[t] = new Thread(() -> {
+                Random random = new Random(seme);
+                long netti = 0;
+                try {
+                    partenza.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < operazioni; i++) {
+                    Integer chiave = chiavi[random.nextInt(chiavi.length)];
+                    int scelta = random.nextInt(10);
+                    if (sincronizzato) {
+                        synchronized (multiset) {
+                            netti += operazione(multiset, chiave, scelta);
+                        }
+                    } else
+                        netti += operazione(multiset, chiave, scelta);
+                }
+                attesi.addAndGet(netti);
+            });
+            lavoratori[t].start();
+        }
+
+        long inizio = System.nanoTime();
+        partenza.countDown();
+        for (Thread lavoratore : lavoratori)
+            lavoratore.join();
+        long tempo = System.nanoTime() - inizio;
+
+        if (multiset.size() != attesi.get())
+            throw new IllegalStateException("size() = " + multiset.size() + ", attesi " + attesi.get() + ".");
+        return tempo;
+    }
+
+    // Esegue l'operazione scelta e restituisce la variazione del numero di elementi
+    private static int operazione(Multiset<Integer> multiset, Integer chiave, int scelta) {
+        if (scelta < 8) {
+            multiset.add(chiave);
+            return 1;
+        }
+        if (scelta == 8)
+            return multiset.remove(chiave) ? -1 : 0;
+        multiset.count(chiave);
+        return 0;
+    }
+}
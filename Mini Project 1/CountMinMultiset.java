@@ -0,0 +1,398 @@
+import java.util.*;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Implementazione:
+ * CountMinMultiset è un multiset approssimato che occupa una quantità di memoria fissata alla
+ * costruzione, indipendente dal numero di elementi distinti inseriti. È pensato per flussi con
+ * moltissimi elementi distinti, per i quali MyMultiset crescerebbe senza limiti.
+ *
+ * Le occorrenze sono memorizzate in un Count-Min Sketch: una matrice di contatori con
+ * "profondità" righe e "larghezza" colonne. Ogni riga ha una propria funzione hash che associa
+ * ad ogni elemento una colonna; add incrementa il contatore dell'elemento in ogni riga, count
+ * restituisce il minimo tra questi contatori. La stima non è mai minore del valore esatto, e
+ * con larghezza = ⌈e / epsilon⌉ e profondità = ⌈ln(1 / delta)⌉ supera il valore esatto di più
+ * di epsilon * size() con probabilità al più delta.
+ * Con l'aggiornamento conservativo add alza ogni contatore solo fino alla nuova stima
+ * dell'elemento, invece di sommare a tutti le occorrenze: l'errore diminuisce, ma non è più
+ * possibile togliere occorrenze.
+ *
+ * Non potendo elencare gli elementi inseriti, il multiset tiene opzionalmente una tabella dei
+ * "candidati frequenti" di capacità fissata: gli elementi con le stime più alte viste finora.
+ * elementSet() e l'iteratore restituiscono solo questi elementi.
+ *
+ * Le operazioni remove e setCount non sono supportate: i contatori sono condivisi tra elementi
+ * diversi, e togliere occorrenze potrebbe portare a stime minori dei valori esatti.
+ *
+ * @param <E> il tipo degli elementi del multiset
+ */
+public class CountMinMultiset<E> implements Multiset<E> {
+
+    // Attributi della classe
+
+    // Numero di righe e di colonne della matrice dei contatori.
+    private final int profondita;
+    private final int larghezza;
+    // Matrice dei contatori, memorizzata per righe: la riga i occupa le celle da i * larghezza.
+    private final int[] contatori;
+    // Se true, add effettua l'aggiornamento conservativo.
+    private final boolean aggiornamentoConservativo;
+    // Numero esatto di occorrenze inserite.
+    private long elementiPresenti;
+    // Ad ogni azione di add o clear verrà incrementato.
+    private int modificheEffettuate;
+
+    // Tabella dei candidati frequenti: candidati[i] è un elemento e stime[i] la sua stima
+    // al momento dell'ultimo aggiornamento. posizioni associa ad ogni candidato la sua cella.
+    private final Object[] candidati;
+    private final int[] stime;
+    private final HashMap<E, Integer> posizioni;
+    // Cella del candidato con la stima minore, il primo ad essere sostituito.
+    private int cellaMinima;
+
+    // Classe Iteratore: presenta i candidati frequenti, ognuno con la sua stima corrente
+    private class Itr implements Iterator<E> {
+        private final int modificheAttese = modificheEffettuate;
+        private final int numeroCandidati = posizioni.size();
+
+        private int cellaSuccessiva;
+        private E elementoCorrente;
+        private int occorrenzeElementoCorrente;
+        private Itr(){
+            cellaSuccessiva = 0;
+            elementoCorrente = null;
+            occorrenzeElementoCorrente = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cellaSuccessiva < numeroCandidati || occorrenzeElementoCorrente > 0;
+        }
+
+        @Override
+        public E next() {
+            if (modificheAttese != modificheEffettuate)
+                // Il multiset è stato modificato durante l'iterazione
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            if (occorrenzeElementoCorrente == 0) {
+                elementoCorrente = (E) candidati[cellaSuccessiva++];
+                occorrenzeElementoCorrente = count(elementoCorrente);
+            }
+            occorrenzeElementoCorrente--;
+            return elementoCorrente;
+        }
+    }
+
+    /**
+     * Crea un multiset approssimato vuoto, senza aggiornamento conservativo e
+     * senza tabella dei candidati frequenti.
+     *
+     * @param epsilon
+     *                    l'errore massimo, in frazione di size(), tollerato
+     *                    sulla stima delle occorrenze
+     * @param delta
+     *                    la probabilità massima che l'errore superi epsilon
+     * @throws IllegalArgumentException
+     *                                      se epsilon o delta non sono compresi
+     *                                      strettamente tra 0 e 1
+     */
+    public CountMinMultiset(double epsilon, double delta) {
+        this(epsilon, delta, false, 0);
+    }
+
+    /**
+     * Crea un multiset approssimato vuoto.
+     *
+     * @param epsilon
+     *                                      l'errore massimo, in frazione di
+     *                                      size(), tollerato sulla stima delle
+     *                                      occorrenze
+     * @param delta
+     *                                      la probabilità massima che l'errore
+     *                                      superi epsilon
+     * @param conservativeUpdate
+     *                                      true per usare l'aggiornamento
+     *                                      conservativo
+     * @param heavyHitterCapacity
+     *                                      il numero di candidati frequenti da
+     *                                      tenere; 0 per non tenerne
+     * @throws IllegalArgumentException
+     *                                      se epsilon o delta non sono compresi
+     *                                      strettamente tra 0 e 1, se la
+     *                                      capacità è negativa o se la matrice
+     *                                      risultante è troppo grande
+     */
+    public CountMinMultiset(double epsilon, double delta, boolean conservativeUpdate,
+                            int heavyHitterCapacity) {
+        if (!(epsilon > 0 && epsilon < 1))
+            throw new IllegalArgumentException("epsilon deve essere compreso tra 0 e 1");
+        if (!(delta > 0 && delta < 1))
+            throw new IllegalArgumentException("delta deve essere compreso tra 0 e 1");
+        if (heavyHitterCapacity < 0)
+            throw new IllegalArgumentException("La capacità non può essere minore di 0");
+
+        long colonne = (long) Math.ceil(Math.E / epsilon);
+        long righe = Math.max(1, (long) Math.ceil(Math.log(1 / delta)));
+        if (colonne * righe > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Matrice dei contatori troppo grande per epsilon = "
+                    + epsilon + " e delta = " + delta);
+
+        this.larghezza = (int) colonne;
+        this.profondita = (int) righe;
+        this.contatori = new int[larghezza * profondita];
+        this.aggiornamentoConservativo = conservativeUpdate;
+        this.candidati = new Object[heavyHitterCapacity];
+        this.stime = new int[heavyHitterCapacity];
+        this.posizioni = new HashMap<>(2 * heavyHitterCapacity);
+        this.cellaMinima = 0;
+        this.elementiPresenti = 0;
+        this.modificheEffettuate = 0;
+    }
+
+    /**
+     * Restituisce il numero esatto di occorrenze inserite.
+     *
+     * @return il numero totale di elementi in questo multinsieme, limitato a
+     *         {@code Integer.MAX_VALUE}
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(elementiPresenti, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce una stima del numero di occorrenze di un certo elemento.
+     * La stima non è mai minore del valore esatto.
+     *
+     * @param element
+     *                    l'elemento di cui stimare le occorrenze
+     * @return la stima del numero di occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public int count(Object element) {
+        if (element == null)
+            throw new NullPointerException();
+
+        int h1 = primoHash(element);
+        int h2 = secondoHash(element);
+        int minimo = Integer.MAX_VALUE;
+        for (int riga = 0; riga < profondita; riga++)
+            minimo = Math.min(minimo, contatori[cella(riga, h1, h2)]);
+        return minimo;
+    }
+
+    /**
+     * Aggiunge un numero di occorrenze di un certo elemento a questo multiset.
+     * I contatori si saturano a {@code Integer.MAX_VALUE}.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        aggiungere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica.
+     * @return la stima del numero di occorrenze dell'elemento prima
+     *         dell'operazione
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int add(E element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0");
+
+        int stimaPrecedente = count(element);
+        if (occurrences == 0)
+            return stimaPrecedente;
+
+        int h1 = primoHash(element);
+        int h2 = secondoHash(element);
+        int nuovaStima = (int) Math.min((long) stimaPrecedente + occurrences, Integer.MAX_VALUE);
+        for (int riga = 0; riga < profondita; riga++) {
+            int c = cella(riga, h1, h2);
+            if (aggiornamentoConservativo)
+                // Alzo il contatore solo quanto basta perché la stima raggiunga il nuovo valore
+                contatori[c] = Math.max(contatori[c], nuovaStima);
+            else
+                contatori[c] = (int) Math.min((long) contatori[c] + occurrences, Integer.MAX_VALUE);
+        }
+
+        elementiPresenti += occurrences;
+        modificheEffettuate++;
+        if (candidati.length > 0)
+            aggiornaCandidati(element, count(element));
+        return stimaPrecedente;
+    }
+
+    /**
+     * Aggiunge una singola occorrenza di un certo elemento a questo multiset.
+     *
+     * @param element
+     *                    l'elemento di cui aggiungere l'occorrenza
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public void add(E element) {
+        add(element, 1);
+    }
+
+    /**
+     * Operazione non supportata.
+     *
+     * @throws UnsupportedOperationException
+     *                                           sempre
+     */
+    @Override
+    public int remove(Object element, int occurrences) {
+        throw new UnsupportedOperationException("Il CountMinMultiset non supporta la rimozione");
+    }
+
+    /**
+     * Operazione non supportata.
+     *
+     * @throws UnsupportedOperationException
+     *                                           sempre
+     */
+    @Override
+    public boolean remove(Object element) {
+        throw new UnsupportedOperationException("Il CountMinMultiset non supporta la rimozione");
+    }
+
+    /**
+     * Operazione non supportata.
+     *
+     * @throws UnsupportedOperationException
+     *                                           sempre
+     */
+    @Override
+    public int setCount(E element, int count) {
+        throw new UnsupportedOperationException("Il CountMinMultiset non supporta setCount");
+    }
+
+    /**
+     * Restituisce l'insieme dei candidati frequenti, cioè degli elementi con
+     * le stime più alte viste finora, al più quanti la capacità data alla
+     * costruzione. Gli elementi meno frequenti non vengono restituiti.
+     *
+     * @return una copia dell'insieme dei candidati frequenti
+     */
+    @Override
+    public Set<E> elementSet() {
+        return new HashSet<E>(posizioni.keySet());
+    }
+
+    /**
+     * Restituisce un iteratore fail-fast sui candidati frequenti: ogni
+     * candidato viene presentato tante volte quanto la sua stima corrente.
+     * L'iteratore non implementa l'operazione {@code remove()}.
+     *
+     * @return un iteratore sui candidati frequenti
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Determina se l'elemento potrebbe essere contenuto in questo multinsieme.
+     * Un risultato {@code false} è sempre esatto, un risultato {@code true}
+     * può essere un falso positivo.
+     *
+     * @param element
+     *                    l'elemento da cercare
+     * @return {@code true} se la stima delle occorrenze è maggiore di 0
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean contains(Object element) {
+        return count(element) > 0;
+    }
+
+    /**
+     * Azzera tutti i contatori e la tabella dei candidati frequenti.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(contatori, 0);
+        Arrays.fill(candidati, null);
+        Arrays.fill(stime, 0);
+        posizioni.clear();
+        cellaMinima = 0;
+        elementiPresenti = 0;
+        modificheEffettuate++;
+    }
+
+    /**
+     * Determina se questo multinsieme è vuoto.
+     *
+     * @return {@code true} se non è stata inserita alcuna occorrenza
+     */
+    @Override
+    public boolean isEmpty() {
+        return elementiPresenti == 0;
+    }
+
+    // Metodi privati
+
+    // Le colonne dell'elemento nelle varie righe sono h1 + riga * h2, modulo la larghezza:
+    // due funzioni hash bastano per ottenerne quante ne servono.
+    private int cella(int riga, int h1, int h2) {
+        return riga * larghezza + ((h1 + riga * h2) & Integer.MAX_VALUE) % larghezza;
+    }
+
+    private static int primoHash(Object element) {
+        int h = element.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int secondoHash(Object element) {
+        int h = (element.hashCode() ^ 0x5BD1E995) * 0x85EBCA6B;
+        return (h ^ (h >>> 13)) | 1;
+    }
+
+    // Aggiorna la tabella dei candidati frequenti con la nuova stima dell'elemento.
+    // Un elemento nuovo entra al posto del candidato con la stima minore, se lo supera.
+    private void aggiornaCandidati(E element, int stima) {
+        Integer posizione = posizioni.get(element);
+        if (posizione != null) {
+            stime[posizione] = stima;
+            if (posizione == cellaMinima)
+                ricalcolaCellaMinima();
+            return;
+        }
+
+        int numeroCandidati = posizioni.size();
+        if (numeroCandidati < candidati.length) {
+            candidati[numeroCandidati] = element;
+            stime[numeroCandidati] = stima;
+            posizioni.put(element, numeroCandidati);
+            if (numeroCandidati == 0 || stima < stime[cellaMinima])
+                cellaMinima = numeroCandidati;
+        } else if (stima > stime[cellaMinima]) {
+            posizioni.remove(candidati[cellaMinima]);
+            candidati[cellaMinima] = element;
+            stime[cellaMinima] = stima;
+            posizioni.put(element, cellaMinima);
+            ricalcolaCellaMinima();
+        }
+    }
+
+    private void ricalcolaCellaMinima() {
+        for (int i = 0; i < posizioni.size(); i++)
+            if (stime[i] < stime[cellaMinima])
+                cellaMinima = i;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Programma di misura per CountMinMultiset: su un flusso con distribuzione di Zipf (pochi elementi
+ * molto frequenti e una lunga coda di elementi rari) confronta le stime con i valori esatti di
+ * MyMultiset e misura il throughput di add delle due implementazioni.
+ *
+ * Per ogni elemento distinto del flusso viene calcolata la sovrastima count(e) - esatto(e), che
+ * non deve mai essere negativa e che supera epsilon * size() con probabilità al più delta: il
+ * programma stampa la sovrastima massima e media, la frazione di elementi oltre il limite da
+ * confrontare con delta, e quanti dei k elementi più frequenti compaiono tra i candidati
+ * frequenti. Le misure sono ripetute con e senza aggiornamento conservativo.
+ *
+ * Uso: CountMinMultisetBenchmark [lunghezza flusso] [elementi distinti] [esponente] [epsilon]
+ * [delta] [k], con valori predefiniti 2000000, 1000000, 1.1, 0.0001, 0.01 e 100.
+ */
+public class CountMinMultisetBenchmark {
+
+    private CountMinMultisetBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int lunghezza = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int distinti = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        double esponente = args.length > 2 ? Double.parseDouble(args[2]) : 1.1;
+        double epsilon = args.length > 3 ? Double.parseDouble(args[3]) : 0.0001;
+        double delta = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        int k = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+
+        Integer[] flusso = flussoZipf(lunghezza, distinti, esponente, new Random(42));
+        long contatori = (long) Math.ceil(Math.E / epsilon) * Math.max(1, (long) Math.ceil(Math.log(1 / delta)));
+        System.out.printf("flusso di %d elementi, %d distinti possibili, Zipf s = %.2f%n", lunghezza, distinti, esponente);
+        System.out.printf("epsilon = %g, delta = %g: %d contatori (%d KB)%n", epsilon, delta, contatori,
+                contatori * 4 / 1024);
+
+        MyMultiset<Integer> esatto = new MyMultiset<>();
+        long tempoEsatto = aggiungi(esatto, flusso);
+        System.out.printf("MyMultiset: %.2f Madd/s, %d elementi distinti%n",
+                lunghezza * 1e3 / tempoEsatto, esatto.elementSet().size());
+
+        List<Integer> piuFrequenti = piuFrequenti(esatto, k);
+        for (boolean conservativo : new boolean[]{false, true}) {
+            CountMinMultiset<Integer> stimato = new CountMinMultiset<>(epsilon, delta, conservativo, k);
+            long tempo = aggiungi(stimato, flusso);
+            confronta(conservativo ? "conservativo" : "standard", stimato, esatto, epsilon, delta,
+                    piuFrequenti, lunghezza * 1e3 / tempo);
+        }
+    }
+
+    private static void confronta(String nome, CountMinMultiset<Integer> stimato, MyMultiset<Integer> esatto,
+                                  double epsilon, double delta, List<Integer> piuFrequenti, double throughput) {
+        double limite = epsilon * esatto.size();
+        long massima = 0;
+        long totale = 0;
+        int oltreLimite = 0;
+        for (Integer elemento : esatto.elementSet()) {
+            long sovrastima = (long) stimato.count(elemento) - esatto.count(elemento);
+            if (sovrastima < 0)
+                throw new IllegalStateException("Stima minore del valore esatto per " + elemento + ".");
+            massima = Math.max(massima, sovrastima);
+            totale += sovrastima;
+            if (sovrastima > limite)
+                oltreLimite++;
+        }
+        int distinti = esatto.elementSet().size();
+
+        Set<Integer> candidati = new HashSet<>(stimato.elementSet());
+        int trovati = 0;
+        for (Integer elemento : piuFrequenti)
+            if (candidati.contains(elemento))
+                trovati++;
+
+        System.out.printf("CountMin %s: %.2f Madd/s%n", nome, throughput);
+        System.out.printf("  sovrastima massima %d, media %.3f, limite epsilon * size() = %.1f%n",
+                massima, (double) totale / distinti, limite);
+        System.out.printf("  elementi oltre il limite: %d su %d (%.5f, delta = %g)%n",
+                oltreLimite, distinti, (double) oltreLimite / distinti, delta);
+        System.out.printf("  %d dei %d elementi più frequenti sono tra i candidati%n", trovati, piuFrequenti.size());
+    }
+
+    // Restituisce il tempo in nanosecondi necessario ad aggiungere il flusso al multiset
+    private static long aggiungi(Multiset<Integer> multiset, Integer[] flusso) {
+        long inizio = System.nanoTime();
+        for (Integer elemento : flusso)
+            multiset.add(elemento);
+        return System.nanoTime() - inizio;
+    }
+
+    // Campiona il flusso per inversione della funzione di ripartizione di Zipf
+    private static Integer[] flussoZipf(int lunghezza, int distinti, double esponente, Random random) {
+        double[] ripartizione = new double[distinti];
+        double somma = 0;
+        for (int i = 0; i < distinti; i++) {
+            somma += 1 / Math.pow(i + 1, esponente);
+            ripartizione[i] = somma;
+        }
+
+        Integer[] elementi = new Integer[distinti];
+        Integer[] flusso = new Integer[lunghezza];
+        for (int i = 0; i < lunghezza; i++) {
+            int posizione = Arrays.binarySearch(ripartizione, random.nextDouble() * somma);
+            int rango = Math.min(posizione < 0 ? -posizione - 1 : posizione, distinti - 1);
+            if (elementi[rango] == null)
+                // I ranghi sono mescolati, così che l'elemento più frequente non sia sempre 0
+                elementi[rango] = rango * 0x9E3779B1;
+            flusso[i] = elementi[rango];
+        }
+        return flusso;
+    }
+
+    // I k elementi con più occorrenze, calcolati sul multiset esatto
+    private static List<Integer> piuFrequenti(MyMultiset<Integer> esatto, int k) {
+        List<Integer> elementi = new ArrayList<>(esatto.elementSet());
+        elementi.sort((a, b) -> Integer.compare(esatto.count(b), esatto.count(a)));
+        return elementi.subList(0, Math.min(k, elementi.size()));
+    }
+}
@@ -0,0 +1,555 @@
+import java.util.*;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Implementazione:
+ * FrequencyMultiset è un multiset che risponde in modo efficiente alle domande sulle frequenze:
+ * gli elementi più frequenti (topK, mostFrequent) e gli elementi con un dato numero di
+ * occorrenze (elementsWithCount), senza dover ordinare tutti gli elementi.
+ *
+ * Come nelle cache LFU, gli elementi sono raggruppati in "secchi": ogni secchio contiene
+ * tutti gli elementi con lo stesso numero di occorrenze. I secchi non vuoti formano una lista
+ * doppiamente concatenata ordinata per numero di occorrenze crescente, e gli elementi di ogni
+ * secchio formano a loro volta una lista doppiamente concatenata.
+ * Una HashMap associa ad ogni elemento il suo nodo, e un'altra associa ad ogni numero di
+ * occorrenze il suo secchio.
+ *
+ * Aggiungere o togliere una occorrenza sposta il nodo nel secchio adiacente e costa O(1).
+ * Spostamenti di più occorrenze costano O(1) se il secchio di destinazione esiste già,
+ * altrimenti quanto il numero di secchi da attraversare per trovare la sua posizione.
+ * topK(k) costa O(k), mostFrequent() O(1) e elementsWithCount(c) è proporzionale al numero
+ * di elementi restituiti.
+ *
+ * @param <E> il tipo degli elementi del multiset
+ */
+public class FrequencyMultiset<E> implements Multiset<E> {
+
+    // Attributi della classe
+
+    // Associa ad ogni elemento il nodo che lo contiene.
+    private final HashMap<E, Nodo<E>> nodi;
+    // Associa ad ogni numero di occorrenze il secchio corrispondente, se non è vuoto.
+    private final HashMap<Integer, Secchio<E>> secchi;
+    // Secchi con il minimo e il massimo numero di occorrenze, null se il multiset è vuoto.
+    private Secchio<E> secchioMinimo;
+    private Secchio<E> secchioMassimo;
+    // Ad ogni azione di add, remove o setCount verrà incrementato.
+    // Servirà all' iteratore, per controllare che non vengano effettuate modifiche durante l'iterazione.
+    private int modificheEffettuate;
+    // Intero che indica gli elementi presenti nel multiset, tenendo conto delle occorrenze
+    private int elementiPresenti;
+
+    // Nodo della lista degli elementi di un secchio
+    private static class Nodo<E> {
+        private final E elemento;
+        private Secchio<E> secchio;
+        private Nodo<E> precedente;
+        private Nodo<E> successivo;
+
+        private Nodo(E elemento) {
+            this.elemento = elemento;
+        }
+    }
+
+    // Secchio degli elementi con lo stesso numero di occorrenze
+    private static class Secchio<E> {
+        private final int occorrenze;
+        private Nodo<E> primo;
+        private Secchio<E> precedente;
+        private Secchio<E> successivo;
+
+        private Secchio(int occorrenze) {
+            this.occorrenze = occorrenze;
+        }
+    }
+
+    // Classe Iteratore: presenta gli elementi dal più frequente al meno frequente
+    private class Itr implements Iterator<E> {
+        private final int modificheAttese = modificheEffettuate;
+
+        private Secchio<E> secchioCorrente;
+        private Nodo<E> nodoSuccessivo;
+        private E elementoCorrente;
+        private int occorrenzeElementoCorrente;
+        private Itr(){
+            secchioCorrente = secchioMassimo;
+            nodoSuccessivo = secchioMassimo == null ? null : secchioMassimo.primo;
+            elementoCorrente = null;
+            occorrenzeElementoCorrente = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nodoSuccessivo != null || occorrenzeElementoCorrente > 0;
+        }
+
+        @Override
+        public E next() {
+            if (modificheAttese != modificheEffettuate)
+                // Il multiset è stato modificato durante l'iterazione
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            // Le occorrenze dell'elemento attuale sono finite, quindi
+            // si può passare al nodo successivo, eventualmente del secchio precedente
+            if (occorrenzeElementoCorrente == 0) {
+                elementoCorrente = nodoSuccessivo.elemento;
+                occorrenzeElementoCorrente = secchioCorrente.occorrenze;
+                nodoSuccessivo = nodoSuccessivo.successivo;
+                if (nodoSuccessivo == null) {
+                    secchioCorrente = secchioCorrente.precedente;
+                    nodoSuccessivo = secchioCorrente == null ? null : secchioCorrente.primo;
+                }
+            }
+            occorrenzeElementoCorrente--;
+            return elementoCorrente;
+        }
+    }
+
+    /**
+     * Crea un multiset vuoto.
+     */
+    public FrequencyMultiset() {
+        nodi = new HashMap<>();
+        secchi = new HashMap<>();
+        secchioMinimo = null;
+        secchioMassimo = null;
+        modificheEffettuate = 0;
+        elementiPresenti = 0;
+    }
+
+    /**
+     * Restituisce il numero totale di elementi in questo multinsieme, contando
+     * tutte le occorrenze.
+     *
+     * @return il numero totale di elementi in questo multinsieme
+     */
+    @Override
+    public int size() {
+        return elementiPresenti;
+    }
+
+    /**
+     * Restituisce il numero di occorrenze di un certo elemento in questo
+     * multinsieme.
+     *
+     * @param element
+     *                    l'elemento di cui contare le occorrenze
+     * @return il numero di occorrenze dell'elemento {@code element} in questo
+     *         multinsieme. Se l'elemento non è presente restituisce 0
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public int count(Object element) {
+        if (element == null)
+            throw new NullPointerException();
+        Nodo<E> nodo = nodi.get(element);
+        return nodo == null ? 0 : nodo.secchio.occorrenze;
+    }
+
+    /**
+     * Aggiunge un numero di occorrenze di un certo elemento a questo multiset.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        aggiungere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica.
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo, o
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int add(E element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+
+        Nodo<E> nodo = nodi.get(element);
+        int occorrenzePrecedenti = nodo == null ? 0 : nodo.secchio.occorrenze;
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
+        if (Integer.MAX_VALUE - occorrenzePrecedenti < occurrences)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+
+        if (nodo == null) {
+            nodo = new Nodo<>(element);
+            nodi.put(element, nodo);
+        }
+        sposta(nodo, occorrenzePrecedenti + occurrences);
+
+        modificheEffettuate++;
+        elementiPresenti += occurrences;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Aggiunge una singola occorrenza di un certo elemento a questo multiset.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere l'occorrenza
+     * @throws IllegalArgumentException
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public void add(E element) {
+        add(element, 1);
+    }
+
+    /**
+     * Rimuove da questo multinsieme un dato numero di occorrenze di un
+     * elemento. Se il multinsieme contiene meno del dato numero di occorrenze,
+     * tutte le occorrenze verranno rimosse.
+     *
+     * @param element
+     *                        l'elemento di cui rimuovere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        rimuovere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int remove(Object element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0");
+
+        Nodo<E> nodo = nodi.get(element);
+        if (nodo == null)
+            return 0;
+        int occorrenzePrecedenti = nodo.secchio.occorrenze;
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
+
+        int occorrenzeRimaste = Math.max(0, occorrenzePrecedenti - occurrences);
+        sposta(nodo, occorrenzeRimaste);
+
+        modificheEffettuate++;
+        elementiPresenti -= occorrenzePrecedenti - occorrenzeRimaste;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Rimuove una singola occorrenza di un certo elemento da questo
+     * multinsieme, se esso è presente.
+     *
+     * @param element
+     *                    l'elemento di cui rimuovere l'occorrenza
+     * @return {@code true} se una occorrenza di {@code element} è stata
+     *         rimossa
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean remove(Object element) {
+        return remove(element, 1) > 0;
+    }
+
+    /**
+     * Aggiunge o rimuove le occorrenze necessarie a un elemento in modo che
+     * esso raggiunga il conteggio desiderato.
+     *
+     * @param element
+     *                    l'elemento di cui aggiungere o rimuovere occorrenze
+     * @param count
+     *                    il numero di occorrenze da raggiungere
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code count} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int setCount(E element, int count) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (count < 0)
+            throw new IllegalArgumentException("Il numero di occorrenze non può essere minore di 0");
+
+        Nodo<E> nodo = nodi.get(element);
+        int occorrenzePrecedenti = nodo == null ? 0 : nodo.secchio.occorrenze;
+        if (occorrenzePrecedenti == count)
+            return occorrenzePrecedenti;
+
+        if (nodo == null) {
+            nodo = new Nodo<>(element);
+            nodi.put(element, nodo);
+        }
+        sposta(nodo, count);
+
+        modificheEffettuate++;
+        elementiPresenti += count - occorrenzePrecedenti;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Restituisce una vista non modificabile dell'insieme di elementi
+     * distinti contenuti in questo multinsieme.
+     *
+     * @return l'insieme di elementi distinti in questo multinsieme
+     */
+    @Override
+    public Set<E> elementSet() {
+        return Collections.unmodifiableSet(nodi.keySet());
+    }
+
+    /**
+     * Restituisce un iteratore fail-fast per questo multinsieme. Gli elementi
+     * vengono presentati in ordine di frequenza non crescente e le occorrenze
+     * dello stesso elemento vengono presentate in sequenza. L'iteratore non
+     * implementa l'operazione {@code remove()}.
+     *
+     * @return un iteratore per questo multinsieme
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Determina se questo multinsieme contiene l'elemento specificato.
+     *
+     * @param element
+     *                    l'elemento da cercare
+     * @return {@code true} se questo multinsieme contiene almeno una occorrenza
+     *         dell'elemento
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean contains(Object element) {
+        if (element == null)
+            throw new NullPointerException("Il FrequencyMultiset non può contenere oggetti null");
+        return nodi.containsKey(element);
+    }
+
+    /**
+     * Rimuove tutti gli elementi da questo multinsieme.
+     */
+    @Override
+    public void clear() {
+        nodi.clear();
+        secchi.clear();
+        secchioMinimo = null;
+        secchioMassimo = null;
+        elementiPresenti = 0;
+        modificheEffettuate++;
+    }
+
+    /**
+     * Determina se questo multinsieme è vuoto.
+     *
+     * @return {@code true} se questo multinsieme è vuoto
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodi.isEmpty();
+    }
+
+    /**
+     * Restituisce i k elementi più frequenti, in ordine di frequenza non
+     * crescente. A parità di frequenza l'ordine non è specificato. Se il
+     * multinsieme contiene meno di k elementi distinti li restituisce tutti.
+     * Costa O(k).
+     *
+     * @param k
+     *              il numero di elementi da restituire
+     * @return la lista dei k elementi più frequenti
+     * @throws IllegalArgumentException
+     *                                      se {@code k} è negativo
+     */
+    public List<E> topK(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("k non può essere minore di 0");
+
+        List<E> toReturn = new ArrayList<>(Math.min(k, nodi.size()));
+        for (Secchio<E> s = secchioMassimo; s != null && toReturn.size() < k; s = s.precedente)
+            for (Nodo<E> n = s.primo; n != null && toReturn.size() < k; n = n.successivo)
+                toReturn.add(n.elemento);
+        return toReturn;
+    }
+
+    /**
+     * Restituisce uno degli elementi con il massimo numero di occorrenze.
+     * Costa O(1).
+     *
+     * @return un elemento più frequente
+     * @throws NoSuchElementException
+     *                                    se il multinsieme è vuoto
+     */
+    public E mostFrequent() {
+        if (secchioMassimo == null)
+            throw new NoSuchElementException("Il multiset è vuoto");
+        return secchioMassimo.primo.elemento;
+    }
+
+    /**
+     * Restituisce gli elementi che hanno esattamente il numero di occorrenze
+     * dato. Il costo è proporzionale al numero di elementi restituiti.
+     *
+     * @param count
+     *                  il numero di occorrenze
+     * @return l'insieme degli elementi con {@code count} occorrenze,
+     *         eventualmente vuoto
+     * @throws IllegalArgumentException
+     *                                      se {@code count} non è positivo
+     */
+    public Set<E> elementsWithCount(int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Il numero di occorrenze deve essere maggiore di 0");
+
+        Set<E> toReturn = new HashSet<>();
+        Secchio<E> s = secchi.get(count);
+        if (s != null)
+            for (Nodo<E> n = s.primo; n != null; n = n.successivo)
+                toReturn.add(n.elemento);
+        return toReturn;
+    }
+
+    /*
+     * Due FrequencyMultiset sono uguali se e solo se contengono esattamente
+     * gli stessi elementi con le stesse molteplicità.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof FrequencyMultiset)) return false;
+
+        FrequencyMultiset<?> temp = (FrequencyMultiset<?>) obj;
+        if (temp.elementiPresenti != elementiPresenti || temp.nodi.size() != nodi.size())
+            return false;
+
+        for (Nodo<E> nodo : nodi.values())
+            if (temp.count(nodo.elemento) != nodo.secchio.occorrenze)
+                return false;
+        return true;
+    }
+
+    /*
+     * Stessa funzione di hash di MyMultiset.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+
+        for (Nodo<E> nodo : nodi.values())
+            hash += 31 * nodo.elemento.hashCode() + nodo.secchio.occorrenze;
+
+        return hash;
+    }
+
+    // Metodi privati per la gestione dei secchi
+
+    // Porta il nodo nel secchio con il numero di occorrenze dato; con 0 occorrenze
+    // l'elemento viene rimosso. Il nodo può non appartenere ancora a nessun secchio.
+    private void sposta(Nodo<E> nodo, int occorrenze) {
+        Secchio<E> vecchio = nodo.secchio;
+        if (occorrenze == 0) {
+            staccaNodo(nodo);
+            nodi.remove(nodo.elemento);
+            return;
+        }
+
+        // Il secchio di destinazione va trovato prima di staccare il nodo, perché
+        // il vecchio secchio, se resta vuoto, viene eliminato
+        Secchio<E> nuovo = secchioPer(occorrenze, vecchio);
+        if (vecchio != null)
+            staccaNodo(nodo);
+
+        nodo.secchio = nuovo;
+        nodo.precedente = null;
+        nodo.successivo = nuovo.primo;
+        if (nuovo.primo != null)
+            nuovo.primo.precedente = nodo;
+        nuovo.primo = nodo;
+    }
+
+    // Toglie il nodo dal suo secchio, eliminando il secchio se resta vuoto.
+    private void staccaNodo(Nodo<E> nodo) {
+        Secchio<E> secchio = nodo.secchio;
+        if (nodo.precedente != null)
+            nodo.precedente.successivo = nodo.successivo;
+        else
+            secchio.primo = nodo.successivo;
+        if (nodo.successivo != null)
+            nodo.successivo.precedente = nodo.precedente;
+        nodo.secchio = null;
+
+        if (secchio.primo == null) {
+            if (secchio.precedente != null)
+                secchio.precedente.successivo = secchio.successivo;
+            else
+                secchioMinimo = secchio.successivo;
+            if (secchio.successivo != null)
+                secchio.successivo.precedente = secchio.precedente;
+            else
+                secchioMassimo = secchio.precedente;
+            secchi.remove(secchio.occorrenze);
+        }
+    }
+
+    // Restituisce il secchio con il numero di occorrenze dato, creandolo se non esiste.
+    // La posizione di un nuovo secchio viene cercata a partire dal secchio vicino
+    // (quello attuale del nodo, o null per un elemento nuovo), quindi per spostamenti
+    // di una occorrenza non si attraversa nessun secchio.
+    private Secchio<E> secchioPer(int occorrenze, Secchio<E> vicino) {
+        Secchio<E> toReturn = secchi.get(occorrenze);
+        if (toReturn != null)
+            return toReturn;
+
+        // Cerco l'ultimo secchio con meno occorrenze, dopo il quale inserire il nuovo
+        Secchio<E> prima;
+        if (vicino == null) {
+            prima = null;
+            for (Secchio<E> s = secchioMinimo; s != null && s.occorrenze < occorrenze; s = s.successivo)
+                prima = s;
+        } else if (vicino.occorrenze < occorrenze) {
+            prima = vicino;
+            while (prima.successivo != null && prima.successivo.occorrenze < occorrenze)
+                prima = prima.successivo;
+        } else {
+            prima = vicino.precedente;
+            while (prima != null && prima.occorrenze > occorrenze)
+                prima = prima.precedente;
+        }
+
+        toReturn = new Secchio<>(occorrenze);
+        toReturn.precedente = prima;
+        toReturn.successivo = prima == null ? secchioMinimo : prima.successivo;
+        if (toReturn.successivo != null)
+            toReturn.successivo.precedente = toReturn;
+        else
+            secchioMassimo = toReturn;
+        if (prima != null)
+            prima.successivo = toReturn;
+        else
+            secchioMinimo = toReturn;
+
+        secchi.put(occorrenze, toReturn);
+        return toReturn;
+    }
+}
@@ -1,5 +1,11 @@
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
  * @author  Luca Tesei (template)
@@ -7,18 +13,20 @@ import java.util.Set;
  *
  * Implementazione:
  * LinkedListDisjointSets utilizza un HashSet di tipo {@link DisjointSetElement} in quanto non
- * permette la duplicazione degli elementi.
+ * permette la duplicazione degli elementi. L'HashSet contiene solo i rappresentanti correnti
+ * ed è aggiornato da makeSet e union, così da non dover scorrere tutti gli elementi.
  *
  */
 public class LinkedListDisjointSets implements DisjointSets {
 
     //Attributi
-    private HashSet<DisjointSetElement> mioHashSet;
+    // Rappresentanti degli insiemi disgiunti correnti
+    private HashSet<DisjointSetElement> rappresentanti;
 
     //Metodi
     //Crea una collezione vuota di insiemi disgiunti.
     public LinkedListDisjointSets() {
-        mioHashSet = new HashSet<>();
+        rappresentanti = new HashSet<>();
     }
 
 
@@ -68,7 +76,7 @@ public class LinkedListDisjointSets implements DisjointSets {
 
         e.setRef1(e);
         e.setNumber(1);
-        mioHashSet.add(e);
+        rappresentanti.add(e);
     }
     /*
      * Nella rappresentazione con liste concatenate un nuovo insieme disgiunto è
@@ -133,36 +141,39 @@ public class LinkedListDisjointSets implements DisjointSets {
     public void union(DisjointSetElement e1, DisjointSetElement e2) {
         checkParameters(e1,e2);
 
-        // Se e1 è il rappresentante di e2 allora fanno parte dello stesso insieme
-        // il controllo viene eseguito anche da e2 su e1 inoltre entrambi potrebbero
-        // non essere i rappresentanti dei loro insiemi ma avendo lo stesso
-        // rappresentante vorrà dire che sono dello stesso insieme
-        if(e2.getRef1() == e1 || e1.getRef1() == e2 || e1.getRef1() == e2.getRef1())
+        // Lavoro sui rappresentanti: se coincidono gli elementi fanno già parte
+        // dello stesso insieme
+        DisjointSetElement maggiore = e1.getRef1();
+        DisjointSetElement minore = e2.getRef1();
+        if(maggiore == minore)
             return;
 
-        // Memorizzo l'elemento successivo a e1 in una variabile temporanea
-        DisjointSetElement temp = e1.getRef2();
-        int e1Number = e1.getNumber();
-        int e2Number = e2.getNumber();
-
-        // Memorizzo e2 come successivo di e1
-        e1.setRef2(e2);
-        DisjointSetElement currentItem = e2;
-
-        for( int i = e2Number; i > 0; i--){
-            // Cambio la ref1 di ogni elemento con e1
-            currentItem.setRef1(e1);
-            // Se il puntatore al prossimo elemento non è nullo passo all'elemento successivo
-            if(currentItem.getRef2() != null)
-                currentItem = currentItem.getRef2();
+        // La lista più corta viene inserita nella più lunga; a parità di
+        // cardinalità resta il rappresentante dell'insieme di e1
+        if(maggiore.getNumber() < minore.getNumber()){
+            DisjointSetElement temp = maggiore;
+            maggiore = minore;
+            minore = temp;
         }
 
-        // Azzero l'intero associato ad e2
-        e2.setNumber(0);
-        // L'ultimo elemento di e2 punterà l'elemento che prima era il successivo di e1
-        currentItem.setRef2(temp);
-        //aggiorno l'intero di e1
-        e1.setNumber(e1Number + e2Number);
+        // Scorro solo la lista più corta: cambio la ref1 di ogni elemento e,
+        // arrivato all'ultimo, ne ho trovato la coda
+        DisjointSetElement coda = minore;
+        coda.setRef1(maggiore);
+        for( int i = minore.getNumber(); i > 1; i--){
+            coda = coda.getRef2();
+            coda.setRef1(maggiore);
+        }
+
+        // Inserisco la lista più corta subito dopo il rappresentante della più
+        // lunga, senza doverne raggiungere la coda
+        coda.setRef2(maggiore.getRef2());
+        maggiore.setRef2(minore);
+
+        maggiore.setNumber(maggiore.getNumber() + minore.getNumber());
+        minore.setNumber(0);
+        // minore non è più un rappresentante
+        rappresentanti.remove(minore);
     }
     /*
      * Dopo l'unione di due insiemi effettivamente disgiunti il rappresentante
@@ -176,6 +187,11 @@ public class LinkedListDisjointSets implements DisjointSets {
      * Questo comportamento è la risultante naturale di una strategia che
      * minimizza il numero di operazioni da fare per realizzare l'unione nel
      * caso di rappresentazione con liste concatenate.
+     *
+     * Il costo di un'unione è proporzionale alla cardinalità dell'insieme più
+     * piccolo: ogni elemento cambia rappresentante solo quando il suo insieme
+     * almeno raddoppia, quindi una sequenza di unioni su n elementi costa in
+     * tutto O(n log n).
      */
 
     /**
@@ -186,14 +202,18 @@ public class LinkedListDisjointSets implements DisjointSets {
      */
     @Override
     public Set<DisjointSetElement> getCurrentRepresentatives() {
-        Set<DisjointSetElement> toReturn = new HashSet<>();
-
-        for(DisjointSetElement toScroll : mioHashSet)
-            // Il rappresentate è l'unico elemento dell'insieme che punta se stesso
-            if(toScroll.getRef1() == toScroll)
-                toReturn.add(toScroll);
+        // Vista in sola lettura: riflette le operazioni successive e scorrerla
+        // costa quanto il numero di insiemi
+        return Collections.unmodifiableSet(rappresentanti);
+    }
 
-        return toReturn;
+    /**
+     * Restituisce il numero di insiemi disgiunti attualmente presenti.
+     *
+     * @return il numero di insiemi disgiunti correnti
+     */
+    public int getNumberOfSets() {
+        return rappresentanti.size();
     }
 
     /**
@@ -220,19 +240,109 @@ public class LinkedListDisjointSets implements DisjointSets {
             throw new IllegalArgumentException();
 
         Set<DisjointSetElement> toReturn = new HashSet<>();
-        DisjointSetElement currentItem = e;
+        forEachElementOfSetContaining(e, toReturn::add);
+        return toReturn;
+    }
+
+    /**
+     * Esegue un'azione su ogni elemento dell'insieme disgiunto di cui fa parte
+     * un certo elemento, percorrendo direttamente la lista concatenata senza
+     * creare nessuna collezione.
+     *
+     * @param e
+     *                  l'elemento di cui si vuole visitare l'insieme
+     * @param azione
+     *                  l'azione da eseguire su ogni elemento
+     * @throws NullPointerException
+     *                                      se l'elemento o l'azione sono null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento passato non è
+     *                                      contenuto in nessun insieme
+     *                                      disgiunto
+     */
+    public void forEachElementOfSetContaining(DisjointSetElement e,
+                                              Consumer<? super DisjointSetElement> azione) {
+        if(azione == null)
+            throw new NullPointerException();
+
+        Iterator<DisjointSetElement> iteratore = iteratorOfSetContaining(e);
+        while(iteratore.hasNext())
+            azione.accept(iteratore.next());
+    }
+
+    /**
+     * Restituisce un iteratore sugli elementi dell'insieme disgiunto di cui fa
+     * parte un certo elemento. L'iteratore percorre la lista concatenata a
+     * partire dal rappresentante e non implementa l'operazione
+     * {@code remove()}. Se l'insieme viene unito a un altro durante
+     * l'iterazione il comportamento non è specificato.
+     *
+     * @param e
+     *              l'elemento di cui si vuole visitare l'insieme
+     * @return un iteratore sugli elementi dell'insieme
+     * @throws NullPointerException
+     *                                      se l'elemento passato è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento passato non è
+     *                                      contenuto in nessun insieme
+     *                                      disgiunto
+     */
+    public Iterator<DisjointSetElement> iteratorOfSetContaining(DisjointSetElement e) {
+        if(e == null)
+            throw new NullPointerException();
+        if(!(isPresent(e)))
+            throw new IllegalArgumentException();
 
-        // Prendo il rappresentante di elementoCorrente
-        if(currentItem.getRef1() != currentItem )
-            currentItem = currentItem.getRef1();
+        return new Itr(e.getRef1());
+    }
 
-        // Scorro tutti gli elementi legati a temp
-        for( int i = currentItem.getNumber(); i > 0; i--){
-            // Aggiungo l'elemento corrente a setDiRitorno
-            toReturn.add(currentItem);
-            currentItem = currentItem.getRef2();
+    /**
+     * Restituisce uno spliterator sugli elementi dell'insieme disgiunto di cui
+     * fa parte un certo elemento, utilizzabile anche per stream paralleli: la
+     * lista viene divisa in blocchi di elementi consecutivi.
+     *
+     * @param e
+     *              l'elemento di cui si vuole visitare l'insieme
+     * @return uno spliterator sugli elementi dell'insieme
+     * @throws NullPointerException
+     *                                      se l'elemento passato è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento passato non è
+     *                                      contenuto in nessun insieme
+     *                                      disgiunto
+     */
+    public Spliterator<DisjointSetElement> spliteratorOfSetContaining(DisjointSetElement e) {
+        Iterator<DisjointSetElement> iteratore = iteratorOfSetContaining(e);
+        return Spliterators.spliterator(iteratore, e.getRef1().getNumber(),
+                Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    // Iteratore sulla lista concatenata di un insieme
+    private static class Itr implements Iterator<DisjointSetElement> {
+        private DisjointSetElement elementoCorrente;
+        private int elementiRimanenti;
+
+        // Parto dal rappresentante, che conosce la cardinalità dell'insieme
+        private Itr(DisjointSetElement rappresentante){
+            elementoCorrente = rappresentante;
+            elementiRimanenti = rappresentante.getNumber();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return elementiRimanenti > 0;
+        }
+
+        @Override
+        public DisjointSetElement next() {
+            if(elementiRimanenti == 0)
+                throw new NoSuchElementException();
+
+            DisjointSetElement toReturn = elementoCorrente;
+            elementoCorrente = elementoCorrente.getRef2();
+            elementiRimanenti--;
+            return toReturn;
         }
-        return toReturn;
     }
 
     /**
@@ -272,28 +382,5 @@ public class LinkedListDisjointSets implements DisjointSets {
             throw new NullPointerException();
         if(e1.getRef1() == null || e2.getRef1() == null)
             throw new IllegalArgumentException();
-
-        // Prendo il rappresentate da entrambi i DisjointSetElement
-        if(e1.getRef1() != e1)
-            e1 = e1.getRef1();
-        if(e2.getRef1() != e2)
-            e2 = e2.getRef1();
-
-        exchangeOfParameters(e1, e2);
-    }
-
-    /**
-     * Metodo per invertire i parametri
-     * @param e1
-     * @param e2
-     */
-    private void exchangeOfParameters(DisjointSetElement e1, DisjointSetElement e2){
-        // Se il secondo elemento è più grande del primo, inverto le posizioni
-        if(e1.getNumber() < e2.getNumber()){
-            DisjointSetElement temp;
-            temp = e1;
-            e1 = e2;
-            e2 = temp;
-        }
     }
 }
\ No newline at end of file
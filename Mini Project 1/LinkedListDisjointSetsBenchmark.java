@@ -0,0 +1,164 @@
+import java.util.Random;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Programma di misura per LinkedListDisjointSets: confronta l'unione pesata, che scorre solo la
+ * lista più corta, con un'unione non pesata che scorre sempre la lista dell'insieme di e2 (il
+ * comportamento della versione precedente). Le unioni sono eseguite in diversi ordini:
+ * - "e2 crescente": union(b[i], b[0]), l'insieme che cresce è sempre passato come e2, il caso
+ *   peggiore per l'unione non pesata (O(n²));
+ * - "e1 crescente": union(b[0], b[i]), il caso migliore per l'unione non pesata;
+ * - "bilanciato": unioni a coppie di insiemi della stessa cardinalità, livello per livello;
+ * - "casuale": in ordine casuale, ogni elemento viene unito a un elemento già considerato.
+ *
+ * Uso: LinkedListDisjointSetsBenchmark [elementi] [ripetizioni], con valori predefiniti 20000 e 3.
+ * Per ogni ordine viene stampato il tempo migliore tra le ripetizioni.
+ */
+public class LinkedListDisjointSetsBenchmark {
+
+    // Elemento minimo degli insiemi disgiunti, senza altri dati
+    private static class Elemento implements DisjointSetElement {
+        private DisjointSetElement ref1;
+        private DisjointSetElement ref2;
+        private int number;
+
+        @Override
+        public DisjointSetElement getRef1() {
+            return ref1;
+        }
+
+        @Override
+        public void setRef1(DisjointSetElement ref1) {
+            this.ref1 = ref1;
+        }
+
+        @Override
+        public DisjointSetElement getRef2() {
+            return ref2;
+        }
+
+        @Override
+        public void setRef2(DisjointSetElement ref2) {
+            this.ref2 = ref2;
+        }
+
+        @Override
+        public int getNumber() {
+            return number;
+        }
+
+        @Override
+        public void setNumber(int number) {
+            this.number = number;
+        }
+    }
+
+    private static final String[] ORDINI = {"e2 crescente", "e1 crescente", "bilanciato", "casuale"};
+
+    private LinkedListDisjointSetsBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int ripetizioni = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.printf("%d elementi, %d unioni%n", n, n - 1);
+        System.out.printf("%-14s %12s %12s%n", "ordine", "pesata ms", "non pes. ms");
+        for (String ordine : ORDINI) {
+            int[] coppie = coppie(ordine, n);
+            long pesata = Long.MAX_VALUE;
+            long nonPesata = Long.MAX_VALUE;
+            for (int r = 0; r < ripetizioni; r++) {
+                pesata = Math.min(pesata, esegui(coppie, n, true));
+                nonPesata = Math.min(nonPesata, esegui(coppie, n, false));
+            }
+            System.out.printf("%-14s %12.1f %12.1f%n", ordine, pesata / 1e6, nonPesata / 1e6);
+        }
+    }
+
+    // Restituisce il tempo in nanosecondi delle unioni, controllando che alla fine resti un solo insieme
+    private static long esegui(int[] coppie, int n, boolean pesata) {
+        Elemento[] elementi = new Elemento[n];
+        LinkedListDisjointSets insiemi = new LinkedListDisjointSets();
+        for (int i = 0; i < n; i++) {
+            elementi[i] = new Elemento();
+            insiemi.makeSet(elementi[i]);
+        }
+
+        long inizio = System.nanoTime();
+        for (int k = 0; k < coppie.length; k += 2) {
+            if (pesata)
+                insiemi.union(elementi[coppie[k]], elementi[coppie[k + 1]]);
+            else
+                unioneNonPesata(elementi[coppie[k]], elementi[coppie[k + 1]]);
+        }
+        long tempo = System.nanoTime() - inizio;
+
+        if (elementi[0].getRef1().getNumber() != n)
+            throw new IllegalStateException("Le unioni non hanno prodotto un solo insieme.");
+        return tempo;
+    }
+
+    // Unione senza confronto delle cardinalità: la lista dell'insieme di e2 viene sempre scorsa
+    // per intero e inserita dopo il rappresentante dell'insieme di e1
+    private static void unioneNonPesata(DisjointSetElement e1, DisjointSetElement e2) {
+        DisjointSetElement rappresentante = e1.getRef1();
+        DisjointSetElement altro = e2.getRef1();
+        if (rappresentante == altro)
+            return;
+
+        DisjointSetElement coda = altro;
+        coda.setRef1(rappresentante);
+        while (coda.getRef2() != null) {
+            coda = coda.getRef2();
+            coda.setRef1(rappresentante);
+        }
+        coda.setRef2(rappresentante.getRef2());
+        rappresentante.setRef2(altro);
+        rappresentante.setNumber(rappresentante.getNumber() + altro.getNumber());
+        altro.setNumber(0);
+    }
+
+    // Coppie d'indici da unire nell'ordine indicato; ogni sequenza unisce tutti gli n elementi
+    private static int[] coppie(String ordine, int n) {
+        int[] coppie = new int[2 * (n - 1)];
+        int k = 0;
+        switch (ordine) {
+            case "e2 crescente":
+                for (int i = 1; i < n; i++) {
+                    coppie[k++] = i;
+                    coppie[k++] = 0;
+                }
+                break;
+            case "e1 crescente":
+                for (int i = 1; i < n; i++) {
+                    coppie[k++] = 0;
+                    coppie[k++] = i;
+                }
+                break;
+            case "bilanciato":
+                for (int passo = 1; passo < n; passo *= 2)
+                    for (int i = 0; i + passo < n; i += 2 * passo) {
+                        coppie[k++] = i;
+                        coppie[k++] = i + passo;
+                    }
+                break;
+            default:
+                // Albero di copertura casuale: ogni elemento viene unito a uno precedente
+                Random random = new Random(42);
+                int[] permutazione = new int[n];
+                for (int i = 0; i < n; i++) {
+                    int j = random.nextInt(i + 1);
+                    permutazione[i] = permutazione[j];
+                    permutazione[j] = i;
+                }
+                for (int i = 1; i < n; i++) {
+                    coppie[k++] = permutazione[i];
+                    coppie[k++] = permutazione[random.nextInt(i)];
+                }
+        }
+        return coppie;
+    }
+}
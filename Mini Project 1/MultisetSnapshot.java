@@ -0,0 +1,460 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Classe di utilità che salva un multiset in un file binario compatto e lo ricarica, oppure lo
+ * interroga direttamente sul file senza caricarlo.
+ *
+ * Il formato è a colonne. Il file contiene, nell'ordine:
+ * - un'intestazione di 28 byte: il numero magico MAGIC, il numero n di elementi distinti, il
+ *   numero di celle dell'indice, la lunghezza in byte del dizionario e quella delle occorrenze,
+ *   e infine (long) il numero totale di occorrenze;
+ * - il dizionario: gli n elementi, codificati da un KeyCodec, ognuno preceduto dalla sua
+ *   lunghezza;
+ * - le occorrenze: gli n numeri di occorrenze, nello stesso ordine degli elementi;
+ * - l'indice: una tabella hash a indirizzamento aperto con scansione lineare. Ogni cella occupa
+ *   8 byte: la posizione dell'elemento nel dizionario più uno (0 indica una cella libera) e la
+ *   posizione delle sue occorrenze.
+ * Le lunghezze e le occorrenze sono scritte come varint: 7 bit per byte, con il bit più alto che
+ * indica se seguono altri byte, così che i numeri piccoli occupino un solo byte.
+ *
+ * read ricostruisce un MyMultiset con una scansione sequenziale del file mappato in memoria.
+ * map restituisce invece una vista in sola lettura che risponde a count cercando l'elemento
+ * nell'indice sul file, senza decodificare gli altri elementi. L'hash usato dall'indice è
+ * calcolato sui byte codificati, quindi non dipende dall'hashCode degli elementi.
+ */
+public final class MultisetSnapshot {
+
+    /**
+     * Numero magico che identifica i file di questo formato ("MSS1").
+     */
+    public static final int MAGIC = 0x4D535331;
+
+    // Dimensione in byte dell'intestazione e posizioni dei suoi campi
+    private static final int DIMENSIONE_INTESTAZIONE = 28;
+    private static final int POSIZIONE_DISTINTI = 4;
+    private static final int POSIZIONE_CELLE = 8;
+    private static final int POSIZIONE_LUNGHEZZA_DIZIONARIO = 12;
+    private static final int POSIZIONE_LUNGHEZZA_OCCORRENZE = 16;
+    private static final int POSIZIONE_TOTALE = 20;
+
+    /**
+     * Codifica e decodifica degli elementi nel dizionario del file. Elementi
+     * uguali devono avere la stessa codifica.
+     *
+     * @param <E>
+     *                il tipo degli elementi
+     */
+    public interface KeyCodec<E> {
+
+        /**
+         * Codifica un elemento in una sequenza di byte.
+         *
+         * @param e
+         *              l'elemento da codificare, non nullo
+         * @return la codifica dell'elemento
+         */
+        byte[] encode(E e);
+
+        /**
+         * Decodifica un elemento codificato con {@link #encode(Object)}.
+         *
+         * @param bytes
+         *                  la codifica dell'elemento
+         * @return l'elemento
+         */
+        E decode(byte[] bytes);
+
+        /**
+         * Restituisce un codec per stringhe codificate in UTF-8.
+         *
+         * @return un codec per stringhe
+         */
+        static KeyCodec<String> utf8() {
+            return new KeyCodec<String>() {
+                @Override
+                public byte[] encode(String e) {
+                    return e.getBytes(StandardCharsets.UTF_8);
+                }
+
+                @Override
+                public String decode(byte[] bytes) {
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+        }
+    }
+
+    private MultisetSnapshot() {
+    }
+
+    /**
+     * Salva un multiset. Per un MyMultiset le coppie (elemento, occorrenze)
+     * vengono lette direttamente dalla sua tabella.
+     *
+     * @param multiset
+     *                     il multiset da salvare
+     * @param file
+     *                     il file da creare o sovrascrivere
+     * @param codec
+     *                     il codec degli elementi
+     * @param <E>
+     *                     il tipo degli elementi
+     * @throws NullPointerException
+     *                                      se uno dei parametri è nullo
+     * @throws IllegalArgumentException
+     *                                      se il file risultante supererebbe i
+     *                                      2 GB
+     * @throws IOException
+     *                                      in caso di errore di scrittura
+     */
+    public static <E> void write(Multiset<E> multiset, Path file, KeyCodec<? super E> codec)
+            throws IOException {
+        if (multiset == null || file == null || codec == null)
+            throw new NullPointerException("Parametri nulli.");
+
+        List<byte[]> chiavi = new ArrayList<>();
+        List<Integer> conteggi = new ArrayList<>();
+        ObjIntConsumer<E> raccogli = (e, n) -> {
+            chiavi.add(codec.encode(e));
+            conteggi.add(n);
+        };
+        if (multiset instanceof MyMultiset)
+            ((MyMultiset<E>) multiset).forEachEntry(raccogli);
+        else
+            for (E e : multiset.elementSet())
+                raccogli.accept(e, multiset.count(e));
+
+        int n = chiavi.size();
+        int celle = 2;
+        while (celle < 2 * n)
+            celle <<= 1;
+
+        // Calcolo le posizioni di ogni elemento nel dizionario e delle sue occorrenze
+        int[] indice = new int[2 * celle];
+        long lunghezzaDizionario = 0;
+        long lunghezzaOccorrenze = 0;
+        long totale = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] chiave = chiavi.get(i);
+            int cella = hash(chiave) & (celle - 1);
+            while (indice[2 * cella] != 0)
+                cella = (cella + 1) & (celle - 1);
+            indice[2 * cella] = (int) lunghezzaDizionario + 1;
+            indice[2 * cella + 1] = (int) lunghezzaOccorrenze;
+
+            lunghezzaDizionario += lunghezzaVarint(chiave.length) + chiave.length;
+            lunghezzaOccorrenze += lunghezzaVarint(conteggi.get(i));
+            totale += conteggi.get(i);
+            if (DIMENSIONE_INTESTAZIONE + lunghezzaDizionario + lunghezzaOccorrenze + 8L * celle > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Multiset troppo grande per essere salvato.");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeInt(celle);
+            out.writeInt((int) lunghezzaDizionario);
+            out.writeInt((int) lunghezzaOccorrenze);
+            out.writeLong(totale);
+            for (byte[] chiave : chiavi) {
+                scriviVarint(out, chiave.length);
+                out.write(chiave);
+            }
+            for (int conteggio : conteggi)
+                scriviVarint(out, conteggio);
+            for (int valore : indice)
+                out.writeInt(valore);
+        }
+    }
+
+    /**
+     * Ricarica sullo heap un multiset salvato con {@link #write}. Il file
+     * viene letto con un'unica scansione sequenziale.
+     *
+     * @param file
+     *                  il file da leggere
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @return il multiset ricostruito
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di lettura o se il
+     *                                  file non è nel formato atteso
+     */
+    public static <E> MyMultiset<E> read(Path file, KeyCodec<? extends E> codec) throws IOException {
+        MappedView<E> vista = map(file, codec);
+        MyMultiset<E> toReturn = new MyMultiset<>();
+        try {
+            vista.forEachEntry(toReturn::add);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("File non valido: " + file + ".", e);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Mappa in memoria, in sola lettura, un multiset salvato con
+     * {@link #write}. Gli elementi non vengono decodificati finché non
+     * servono, ma l'indice viene controllato per intero.
+     *
+     * @param file
+     *                  il file da mappare
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @return una vista in sola lettura del multiset salvato
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di lettura, se il
+     *                                  file non è nel formato atteso o se
+     *                                  supera i 2 GB
+     */
+    public static <E> MappedView<E> map(Path file, KeyCodec<? extends E> codec) throws IOException {
+        if (file == null || codec == null)
+            throw new NullPointerException("Parametri nulli.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long lunghezza = channel.size();
+            if (lunghezza > Integer.MAX_VALUE)
+                throw new IOException("File troppo grande per essere mappato: " + file + ".");
+            if (lunghezza < DIMENSIONE_INTESTAZIONE)
+                throw new IOException("File non valido: " + file + ".");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, lunghezza);
+            if (buffer.getInt(0) != MAGIC)
+                throw new IOException("File non valido: " + file + ".");
+
+            int n = buffer.getInt(POSIZIONE_DISTINTI);
+            int celle = buffer.getInt(POSIZIONE_CELLE);
+            int lunghezzaDizionario = buffer.getInt(POSIZIONE_LUNGHEZZA_DIZIONARIO);
+            int lunghezzaOccorrenze = buffer.getInt(POSIZIONE_LUNGHEZZA_OCCORRENZE);
+            if (n < 0 || celle < 2 || Integer.bitCount(celle) != 1 || celle < 2L * n
+                    || lunghezzaDizionario < 0 || lunghezzaOccorrenze < 0
+                    || (long) DIMENSIONE_INTESTAZIONE + lunghezzaDizionario + lunghezzaOccorrenze + 8L * celle != lunghezza)
+                throw new IOException("File non valido: " + file + ".");
+
+            /*
+             * Ogni cella occupata dell'indice deve puntare dentro il
+             * dizionario e dentro le occorrenze, e le celle occupate devono
+             * essere n: essendo celle >= 2n resta almeno una cella libera, che
+             * ferma la scansione lineare di count.
+             */
+            int occupate = 0;
+            int inizioIndice = DIMENSIONE_INTESTAZIONE + lunghezzaDizionario + lunghezzaOccorrenze;
+            for (int cella = 0; cella < celle; cella++) {
+                int posizioneChiave = buffer.getInt(inizioIndice + 8 * cella);
+                if (posizioneChiave == 0)
+                    continue;
+                int posizioneOccorrenze = buffer.getInt(inizioIndice + 8 * cella + 4);
+                if (posizioneChiave < 0 || posizioneChiave > lunghezzaDizionario
+                        || posizioneOccorrenze < 0 || posizioneOccorrenze >= lunghezzaOccorrenze)
+                    throw new IOException("File non valido: " + file + ".");
+                occupate++;
+            }
+            if (occupate != n || occupate == celle)
+                throw new IOException("File non valido: " + file + ".");
+
+            return new MappedView<>(buffer, codec);
+        }
+    }
+
+    /**
+     * Vista in sola lettura di un multiset salvato su file e mappato in
+     * memoria. {@link #count(Object)} cerca l'elemento nell'indice del file.
+     *
+     * @param <E>
+     *                il tipo degli elementi
+     */
+    public static final class MappedView<E> {
+
+        private final ByteBuffer buffer;
+        private final KeyCodec<? extends E> codec;
+        private final int distinti;
+        private final int celle;
+        private final long totale;
+        private final int inizioDizionario;
+        private final int inizioOccorrenze;
+        private final int inizioIndice;
+
+        private MappedView(ByteBuffer buffer, KeyCodec<? extends E> codec) {
+            this.buffer = buffer;
+            this.codec = codec;
+            this.distinti = buffer.getInt(POSIZIONE_DISTINTI);
+            this.celle = buffer.getInt(POSIZIONE_CELLE);
+            this.totale = buffer.getLong(POSIZIONE_TOTALE);
+            this.inizioDizionario = DIMENSIONE_INTESTAZIONE;
+            this.inizioOccorrenze = inizioDizionario + buffer.getInt(POSIZIONE_LUNGHEZZA_DIZIONARIO);
+            this.inizioIndice = inizioOccorrenze + buffer.getInt(POSIZIONE_LUNGHEZZA_OCCORRENZE);
+        }
+
+        /**
+         * Restituisce il numero totale di occorrenze salvate.
+         *
+         * @return il numero totale di occorrenze
+         */
+        public long size() {
+            return totale;
+        }
+
+        /**
+         * Restituisce il numero di elementi distinti salvati.
+         *
+         * @return il numero di elementi distinti
+         */
+        public int distinctCount() {
+            return distinti;
+        }
+
+        /**
+         * Restituisce il numero di occorrenze salvate di un elemento, cercandolo
+         * nell'indice del file: l'elemento viene codificato e confrontato
+         * byte per byte, senza decodificare gli altri elementi.
+         *
+         * @param element
+         *                    l'elemento
+         * @return il numero di occorrenze dell'elemento, 0 se non è presente
+         * @throws NullPointerException
+         *                                  se l'elemento è nullo
+         * @throws ClassCastException
+         *                                  se l'elemento non è del tipo gestito
+         *                                  dal codec
+         */
+        public int count(Object element) {
+            if (element == null)
+                throw new NullPointerException("Elemento nullo.");
+
+            byte[] chiave = ((KeyCodec<Object>) codec).encode(element);
+            int cella = hash(chiave) & (celle - 1);
+            // map garantisce una cella libera, il limite ai passi è solo una difesa in più
+            for (int passi = 0; passi < celle; passi++) {
+                int posizioneChiave = buffer.getInt(inizioIndice + 8 * cella);
+                if (posizioneChiave == 0)
+                    return 0;
+                if (stessaChiave(inizioDizionario + posizioneChiave - 1, chiave))
+                    return leggiVarint(buffer, inizioOccorrenze + buffer.getInt(inizioIndice + 8 * cella + 4));
+                cella = (cella + 1) & (celle - 1);
+            }
+            return 0;
+        }
+
+        /**
+         * Determina se un elemento è stato salvato.
+         *
+         * @param element
+         *                    l'elemento
+         * @return true se l'elemento ha almeno una occorrenza
+         * @throws NullPointerException
+         *                                  se l'elemento è nullo
+         */
+        public boolean contains(Object element) {
+            return count(element) > 0;
+        }
+
+        /**
+         * Esegue l'azione data per ogni elemento salvato, passandole l'elemento
+         * decodificato e le sue occorrenze. Il file viene letto con una
+         * scansione sequenziale.
+         *
+         * @param action
+         *                   l'azione da eseguire
+         * @throws NullPointerException
+         *                                  se l'azione è nulla
+         * @throws IllegalArgumentException
+         *                                  se il dizionario o le occorrenze
+         *                                  del file non sono validi
+         */
+        public void forEachEntry(ObjIntConsumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException("Azione nulla.");
+
+            // Ogni sezione è letta entro i propri limiti, così che un file corrotto non legga le altre
+            ByteBuffer dizionario = buffer.duplicate();
+            dizionario.limit(inizioOccorrenze).position(inizioDizionario);
+            ByteBuffer occorrenze = buffer.duplicate();
+            occorrenze.limit(inizioIndice).position(inizioOccorrenze);
+            for (int i = 0; i < distinti; i++) {
+                int lunghezza = leggiVarint(dizionario);
+                if (lunghezza < 0 || lunghezza > dizionario.remaining())
+                    throw new IllegalArgumentException("Lunghezza della chiave non valida: " + lunghezza + ".");
+                byte[] chiave = new byte[lunghezza];
+                dizionario.get(chiave);
+                action.accept(codec.decode(chiave), leggiVarint(occorrenze));
+            }
+        }
+
+        // Confronta la chiave che inizia alla posizione data del file con quella cercata.
+        private boolean stessaChiave(int posizione, byte[] chiave) {
+            ByteBuffer temp = buffer.duplicate();
+            temp.limit(inizioOccorrenze).position(posizione);
+            if (leggiVarint(temp) != chiave.length || temp.remaining() < chiave.length)
+                return false;
+            for (byte b : chiave)
+                if (temp.get() != b)
+                    return false;
+            return true;
+        }
+    }
+
+    // Hash FNV-1a dei byte della chiave, mescolato perché anche i bit bassi dipendano da tutti i byte.
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes)
+            h = (h ^ b) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    private static int lunghezzaVarint(int valore) {
+        int toReturn = 1;
+        while ((valore >>>= 7) != 0)
+            toReturn++;
+        return toReturn;
+    }
+
+    private static void scriviVarint(DataOutputStream out, int valore) throws IOException {
+        while ((valore & ~0x7F) != 0) {
+            out.writeByte((valore & 0x7F) | 0x80);
+            valore >>>= 7;
+        }
+        out.writeByte(valore);
+    }
+
+    // Legge un varint dalla posizione corrente del buffer, avanzando.
+    private static int leggiVarint(ByteBuffer buffer) {
+        int toReturn = 0;
+        for (int spostamento = 0; spostamento < 35; spostamento += 7) {
+            byte b = buffer.get();
+            toReturn |= (b & 0x7F) << spostamento;
+            if (b >= 0)
+                return toReturn;
+        }
+        throw new IllegalArgumentException("Varint non valido.");
+    }
+
+    // Legge un varint dalla posizione data del buffer, senza modificarne la posizione.
+    private static int leggiVarint(ByteBuffer buffer, int posizione) {
+        ByteBuffer temp = buffer.duplicate();
+        temp.position(posizione);
+        return leggiVarint(temp);
+    }
+}
@@ -1,15 +1,32 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collector;
 
 /**
  * @author Luca Tesei (template)
  *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
  *
  * Implementazione:
- * MyMultiset utilizza una HashMap con chiave "E" e valore Integer.
- * Si è preferito utilizzare questa struttura dati in quanti l'esecuzione dei principali metodi
- * viene svolta in O (o grande) di 1.
- * La chiave è l' hash dell'oggetto E(azione interna dei metodi di HashMap), garantendo l'accesso diretto ai valori richiesti.
- * I valori Integer rappresentano le occorrenze di ogni elemento.
+ * MyMultiset utilizza una tabella hash a indirizzamento aperto con scansione lineare, realizzata
+ * con due array paralleli: chiavi (Object[]) e occorrenze (int[]).
+ * Si è preferito utilizzare questa struttura dati in quanto l'esecuzione dei principali metodi
+ * viene svolta in O (o grande) di 1: ogni add, remove o setCount fa una sola ricerca nella
+ * tabella e aggiorna il contatore sul posto, senza creare oggetti Integer.
+ * La cella di partenza è data dall'hash dell'oggetto E, le collisioni si risolvono passando alla
+ * cella successiva. La tabella è sempre piena al più a metà e la sua dimensione è una potenza di 2.
+ *
+ * Poiché la maggior parte dei multiset contiene pochi elementi distinti, finché questi sono al più
+ * MASSIMO_COMPATTO gli array vengono usati in forma compatta: gli elementi occupano le prime celle
+ * e vengono cercati scorrendole, senza calcolare hash. L'ordine delle celle non è quello di
+ * inserimento, perché la rimozione di un elemento sposta l'ultimo nella cella liberata. Gli array
+ * crescono raddoppiando a partire da 0 celle, quindi un multiset vuoto non alloca array e uno con
+ * pochi elementi usa array grandi quanto basta. All'inserimento dell'elemento successivo gli elementi
+ * vengono ridistribuiti nella tabella hash. I due casi si distinguono dalla lunghezza degli array.
  *
  * @param <E> il tipo degli elementi del multiset
  */
@@ -17,22 +34,65 @@ public class MyMultiset<E> implements Multiset<E> {
 
     // Attributi della classe
 
-    // mioHashMap è un oggetto di tipo HashMap, conterrà gli elementi del MultiSet.
-    private HashMap<E, Integer> mioHashMap;
+    // Numero massimo di elementi distinti memorizzati in forma compatta, deve essere una potenza di 2
+    private static final int MASSIMO_COMPATTO = 8;
+    // Capacità della tabella hash al passaggio dalla forma compatta, deve essere una potenza di 2
+    // maggiore del doppio di MASSIMO_COMPATTO
+    private static final int CAPACITA_INIZIALE = 32;
+    // Array vuoti condivisi da tutti i multiset vuoti
+    private static final Object[] CHIAVI_VUOTE = new Object[0];
+    private static final int[] OCCORRENZE_VUOTE = new int[0];
+    // Numero di elementi distinti, sommando i due operandi, oltre il quale le operazioni
+    // tra multinsiemi vengono eseguite in parallelo
+    private static final int SOGLIA_PARALLELA = 1 << 16;
+    // Numero di celle che ogni compito parallelo esamina senza dividersi ulteriormente
+    private static final int CELLE_PER_COMPITO = 1 << 14;
+
+    // Operazioni tra multinsiemi: dalle occorrenze di un elemento nei due operandi
+    // calcolano quelle nel risultato
+    private static final IntBinaryOperator UNIONE = Math::max;
+    private static final IntBinaryOperator INTERSEZIONE = Math::min;
+    private static final IntBinaryOperator DIFFERENZA = (a, b) -> Math.max(0, a - b);
+    private static final IntBinaryOperator SOMMA = (a, b) -> {
+        if (Integer.MAX_VALUE - a < b)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+        return a + b;
+    };
+
+    // chiavi[i] è l'elemento memorizzato nella cella i, null se la cella è libera.
+    private Object[] chiavi;
+    // occorrenze[i] è il numero di occorrenze di chiavi[i], sempre maggiore di 0 se la cella è occupata.
+    private int[] occorrenze;
+    // Numero di elementi distinti, cioè di celle occupate.
+    private int elementiDistinti;
     // Ad ogni azione di add, remove o setCount verrà incrementato.
     // Servirà all' iteratore, per controllare che non vengano effettuate modifiche durante l'iterazione.
     private int modificheEffettuate;
     // Intero che indica gli elementi presenti nel multiSet, tenendo conto delle occorrenze
     private int elementiPresenti;
+    // Codice hash del multiset, aggiornato ad ogni modifica così che hashCode() costi O(1).
+    // È la somma, per ogni elemento e, di 31 * e.hashCode() + occorrenze di e.
+    private int hashMultiset;
+    // Vista dell'insieme degli elementi distinti, creata alla prima richiesta di elementSet().
+    private Set<E> vistaElementi;
+    // Vista delle coppie (elemento, occorrenze), creata alla prima richiesta di entrySet().
+    private Set<Map.Entry<E, Integer>> vistaVoci;
 
     // Classe Iteratore
+    // Scorre direttamente le celle della tabella, leggendo elemento e occorrenze nello stesso
+    // passaggio, quindi non alloca nulla oltre all'iteratore stesso.
     private class Itr implements Iterator<E> {
-        private final Iterator<E> iteratoreChiavi = elementSet().iterator();
         private final int modificheAttese = modificheEffettuate;
 
+        // Cella da cui riprendere la ricerca del prossimo elemento
+        private int cellaSuccessiva;
+        // Elementi distinti ancora da visitare
+        private int elementiDaVisitare;
         private E elementoCorrente;
         private int occorrenzeElementoCorrente;
         private Itr(){
+            cellaSuccessiva = 0;
+            elementiDaVisitare = elementiDistinti;
             elementoCorrente = null;
             occorrenzeElementoCorrente = 0;
         }
@@ -40,7 +100,7 @@ public class MyMultiset<E> implements Multiset<E> {
         // quindi controllo che occorrenzeElementoCorrente sia maggiore di 0
         @Override
         public boolean hasNext() {
-            return iteratoreChiavi.hasNext() || occorrenzeElementoCorrente > 0;
+            return elementiDaVisitare > 0 || occorrenzeElementoCorrente > 0;
         }
 
         @Override
@@ -48,25 +108,232 @@ public class MyMultiset<E> implements Multiset<E> {
             if (modificheAttese != modificheEffettuate)
                 // Il multiset è stato modificato durante l'iterazione
                 throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            if (!hasNext())
+                throw new NoSuchElementException();
 
             // Le occorrenze dell'elemento attuale sono finite, quindi
-            // si può passare all'elemento successivo
+            // si può passare alla cella occupata successiva
             if(occorrenzeElementoCorrente == 0) {
-                elementoCorrente = iteratoreChiavi.next();
-                occorrenzeElementoCorrente = mioHashMap.get(elementoCorrente);
+                while (chiavi[cellaSuccessiva] == null)
+                    cellaSuccessiva++;
+                elementoCorrente = (E) chiavi[cellaSuccessiva];
+                occorrenzeElementoCorrente = occorrenze[cellaSuccessiva];
+                cellaSuccessiva++;
+                elementiDaVisitare--;
             }
             occorrenzeElementoCorrente--;
             return elementoCorrente;
         }
     }
 
+    // Vista dell'insieme degli elementi distinti, basata direttamente sulla tabella.
+    // La vista non è modificabile: gli elementi si tolgono dal multiset con remove o setCount.
+    private class VistaElementi extends AbstractSet<E> {
+        @Override
+        public int size() {
+            return elementiDistinti;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && cerca(o) >= 0;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private final int modificheAttese = modificheEffettuate;
+                private int cellaSuccessiva = 0;
+                private int elementiDaVisitare = elementiDistinti;
+
+                @Override
+                public boolean hasNext() {
+                    return elementiDaVisitare > 0;
+                }
+
+                @Override
+                public E next() {
+                    if (modificheAttese != modificheEffettuate)
+                        throw new ConcurrentModificationException("L'iteratore è stato modificato");
+                    if (elementiDaVisitare == 0)
+                        throw new NoSuchElementException();
+                    while (chiavi[cellaSuccessiva] == null)
+                        cellaSuccessiva++;
+                    elementiDaVisitare--;
+                    return (E) chiavi[cellaSuccessiva++];
+                }
+            };
+        }
+    }
+
+    // Vista delle coppie (elemento, occorrenze), basata direttamente sulla tabella e non modificabile.
+    private class VistaVoci extends AbstractSet<Map.Entry<E, Integer>> {
+        @Override
+        public int size() {
+            return elementiDistinti;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> voce = (Map.Entry<?, ?>) o;
+            if (voce.getKey() == null || !(voce.getValue() instanceof Integer))
+                return false;
+            int cella = cerca(voce.getKey());
+            return cella >= 0 && occorrenze[cella] == (Integer) voce.getValue();
+        }
+
+        @Override
+        public Iterator<Map.Entry<E, Integer>> iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        @Override
+        public Spliterator<Map.Entry<E, Integer>> spliterator() {
+            return new SpliteratoreVoci(0, chiavi.length, elementiDistinti, modificheEffettuate);
+        }
+    }
+
+    // Spliterator sulle coppie (elemento, occorrenze) delle celle in [cellaSuccessiva, fine).
+    // trySplit divide a metà l'intervallo di celle, così che le coppie possano essere
+    // elaborate in parallelo. È fail-fast come l'iteratore: le parti ottenute con trySplit
+    // ereditano il numero di modifiche atteso da quello di partenza.
+    private class SpliteratoreVoci implements Spliterator<Map.Entry<E, Integer>> {
+        private final int modificheAttese;
+        private int cellaSuccessiva;
+        private final int fine;
+        // Stima degli elementi distinti nell'intervallo; esatta finché non viene diviso
+        private int stima;
+        private boolean diviso;
+
+        private SpliteratoreVoci(int cellaSuccessiva, int fine, int stima, int modificheAttese) {
+            this.modificheAttese = modificheAttese;
+            this.cellaSuccessiva = cellaSuccessiva;
+            this.fine = fine;
+            this.stima = stima;
+            this.diviso = false;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Map.Entry<E, Integer>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            // Il controllo precede ogni accesso: dopo una modifica la tabella può essere più corta di fine
+            if (modificheAttese != modificheEffettuate)
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            Object[] tabella = chiavi;
+            while (cellaSuccessiva < fine) {
+                int cella = cellaSuccessiva++;
+                if (tabella[cella] != null) {
+                    action.accept(new AbstractMap.SimpleImmutableEntry<>((E) tabella[cella], occorrenze[cella]));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Map.Entry<E, Integer>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] tabella = chiavi;
+            int[] conteggi = occorrenze;
+            while (cellaSuccessiva < fine) {
+                // Anche action può modificare il multinsieme, per cui il controllo si ripete a ogni coppia
+                if (modificheAttese != modificheEffettuate)
+                    throw new ConcurrentModificationException("L'iteratore è stato modificato");
+                int cella = cellaSuccessiva++;
+                if (tabella[cella] != null)
+                    action.accept(new AbstractMap.SimpleImmutableEntry<>((E) tabella[cella], conteggi[cella]));
+            }
+            if (modificheAttese != modificheEffettuate)
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+        }
+
+        @Override
+        public Spliterator<Map.Entry<E, Integer>> trySplit() {
+            // Dopo una modifica fine può superare la lunghezza della tabella, per cui non si divide
+            if (modificheAttese != modificheEffettuate)
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            int meta = (cellaSuccessiva + fine) >>> 1;
+            if (meta - cellaSuccessiva < 2)
+                return null;
+            stima >>>= 1;
+            diviso = true;
+            SpliteratoreVoci prima = new SpliteratoreVoci(cellaSuccessiva, meta, stima, modificheAttese);
+            prima.diviso = true;
+            cellaSuccessiva = meta;
+            return prima;
+        }
+
+        @Override
+        public long estimateSize() {
+            return stima;
+        }
+
+        @Override
+        public int characteristics() {
+            return (diviso ? 0 : Spliterator.SIZED) | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    // Compito che calcola l'operazione sulle celle [inizio, fine) della concatenazione delle
+    // tabelle dei due operandi. Gli elementi del primo operando vengono considerati nelle sue
+    // celle, quelli presenti solo nel secondo nelle celle del secondo: ogni elemento viene
+    // quindi considerato da un solo compito, e i risultati parziali hanno elementi disgiunti.
+    private static class CombinaTask<E> extends RecursiveTask<MyMultiset<E>> {
+        private static final long serialVersionUID = 1L;
+
+        private final MyMultiset<E> primo;
+        private final MyMultiset<E> secondo;
+        private final IntBinaryOperator operazione;
+        private final int inizio;
+        private final int fine;
+
+        private CombinaTask(MyMultiset<E> primo, MyMultiset<E> secondo, IntBinaryOperator operazione,
+                            int inizio, int fine) {
+            this.primo = primo;
+            this.secondo = secondo;
+            this.operazione = operazione;
+            this.inizio = inizio;
+            this.fine = fine;
+        }
+
+        @Override
+        protected MyMultiset<E> compute() {
+            if (fine - inizio <= CELLE_PER_COMPITO) {
+                MyMultiset<E> risultato = new MyMultiset<>();
+                combinaCelle(primo, secondo, operazione, inizio, fine, risultato);
+                return risultato;
+            }
+
+            int meta = (inizio + fine) >>> 1;
+            CombinaTask<E> sinistro = new CombinaTask<>(primo, secondo, operazione, inizio, meta);
+            sinistro.fork();
+            MyMultiset<E> risultato = new CombinaTask<>(primo, secondo, operazione, meta, fine).compute();
+            MyMultiset<E> parziale = sinistro.join();
+            // Unisco il risultato più piccolo al più grande
+            if (parziale.elementiDistinti > risultato.elementiDistinti) {
+                MyMultiset<E> temp = parziale;
+                parziale = risultato;
+                risultato = temp;
+            }
+            risultato.assorbiDisgiunto(parziale);
+            return risultato;
+        }
+    }
+
     /**
      * Crea un multiset vuoto.
      */
     public MyMultiset() {
-        mioHashMap = new HashMap<>();
+        chiavi = CHIAVI_VUOTE;
+        occorrenze = OCCORRENZE_VUOTE;
+        elementiDistinti = 0;
         modificheEffettuate = 0;
         elementiPresenti = 0;
+        hashMultiset = 0;
     }
     /**
      * Restituisce il numero totale di elementi in questo multinsieme. Ad
@@ -97,10 +364,9 @@ public class MyMultiset<E> implements Multiset<E> {
     public int count(Object element) {
         if (element == null)
             throw new NullPointerException();
-        // Alla variabile locale "val" di tipo Integer assegno il valore corrispondente all'elemento.
-        Integer val = mioHashMap.get(element);
-        // Restituisco 0 se l'elemento è nullo, altrimenti val.
-        return val == null ? 0 : val;
+        int cella = cerca(element);
+        // Restituisco 0 se l'elemento non è presente, altrimenti le sue occorrenze.
+        return cella < 0 ? 0 : occorrenze[cella];
     }
 
     /**
@@ -131,22 +397,28 @@ public class MyMultiset<E> implements Multiset<E> {
             // ridondante in quanto se occurrences è maggiore, non può essere un int
             throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
 
-        Integer occorrenzePrecedenti = mioHashMap.get(element);
-        // Se il valore di get(Element) è null vuol dire che non è presente nella Map
+        int cella = cerca(element);
+        // Se la cella è negativa vuol dire che l'elemento non è presente
         // quindi a occorrenzePrecedenti assegno 0
-        occorrenzePrecedenti = occorrenzePrecedenti == null ? 0 : occorrenzePrecedenti;
+        int occorrenzePrecedenti = cella < 0 ? 0 : occorrenze[cella];
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
 
         // la differenza tra Integer.MAX_VALUE e occorrenzePrecedenti
         // da come risultato il numero di occorenze che possono ancora essere inserite
         if (Integer.MAX_VALUE - occorrenzePrecedenti < occurrences)
             throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
 
-        // tramite il metodo put scrivo, o sovrascrivo, le occorrenze di element
-        mioHashMap.put(element, occorrenzePrecedenti + occurrences);
+        // aggiorno il contatore sul posto, oppure occupo la cella libera trovata
+        if (cella >= 0)
+            occorrenze[cella] += occurrences;
+        else
+            inserisci(cella, element, occurrences);
 
         // Incremento le modifiche e aggiorno il numero di elementi presenti.
         modificheEffettuate++;
         elementiPresenti += occurrences;
+        hashMultiset += occurrences;
         return occorrenzePrecedenti;
     }
 
@@ -193,22 +465,28 @@ public class MyMultiset<E> implements Multiset<E> {
         if (occurrences < 0 || occurrences > Integer.MAX_VALUE)
             throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
 
-        E elementoDaAggiungere = (E) element;
-        // Se occcorrenzePrecedenti è null vuol dire che l'oggetto non è presente nella Map
-        Integer occorrenzePrecedenti = mioHashMap.get(elementoDaAggiungere);
-        if (occorrenzePrecedenti == null)
+        // Se la cella è negativa vuol dire che l'oggetto non è presente nella tabella
+        int cella = cerca(element);
+        if (cella < 0)
             return 0;
 
-        mioHashMap.put(elementoDaAggiungere, occorrenzePrecedenti - occurrences);
+        int occorrenzePrecedenti = occorrenze[cella];
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
 
-        // Se le occorrenze dell'elemento sono minori o uguali a 0, l'elemento viene rimosso dalla Map
-        if (mioHashMap.get(elementoDaAggiungere) <= 0)
-            mioHashMap.remove(elementoDaAggiungere);
+        // Se le occorrenze dell'elemento diventano minori o uguali a 0, l'elemento viene rimosso
+        if (occorrenzePrecedenti <= occurrences) {
+            liberaCella(cella);
+            elementiPresenti -= occorrenzePrecedenti;
+            hashMultiset -= occorrenzePrecedenti;
+        } else {
+            occorrenze[cella] -= occurrences;
+            elementiPresenti -= occurrences;
+            hashMultiset -= occurrences;
+        }
 
-        // Incremento le modifiche e aggiorno il numero di elementi presenti.
-        if(occurrences != 0)
-            modificheEffettuate++;
-        elementiPresenti -= occurrences;
+        // Incremento le modifiche
+        modificheEffettuate++;
         return occorrenzePrecedenti;
     }
 
@@ -250,21 +528,26 @@ public class MyMultiset<E> implements Multiset<E> {
         if (count < 0 || count > Integer.MAX_VALUE)
             throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
 
-        // Ad occorrenzePrecedenti assegno 0 se l'elemento non era presente nel this.mioHashMap,
-        // altrimenti il valore corrispondente a quella chiave
-        int occorrenzePrecedenti = mioHashMap.get(element) == null ? 0 : mioHashMap.get(element);
-        mioHashMap.put((E) element, count);
+        // Ad occorrenzePrecedenti assegno 0 se l'elemento non era presente nella tabella,
+        // altrimenti il valore della sua cella. La ricerca viene fatta una sola volta.
+        int cella = cerca(element);
+        int occorrenzePrecedenti = cella < 0 ? 0 : occorrenze[cella];
+        if (occorrenzePrecedenti == count)
+            return occorrenzePrecedenti;
 
-        // Per modificare in modo corretto il numero di elementi
-        // utilizzo occorrenzePrecedenti per sapere se dovrò sommare o sottrarre il valore di count
-        if(occorrenzePrecedenti == 0 || count > occorrenzePrecedenti)
-            elementiPresenti += count-occorrenzePrecedenti;
-        else if (occorrenzePrecedenti > count)
-            elementiPresenti -= occorrenzePrecedenti - count;
+        if (count == 0)
+            liberaCella(cella);
+        else if (cella >= 0)
+            occorrenze[cella] = count;
+        else
+            inserisci(cella, element, count);
+
+        // La differenza, positiva o negativa, aggiorna il numero di elementi
+        elementiPresenti += count - occorrenzePrecedenti;
+        hashMultiset += count - occorrenzePrecedenti;
 
         // Incremento le modifiche
-        if(occorrenzePrecedenti != count)
-            modificheEffettuate++;
+        modificheEffettuate++;
         return occorrenzePrecedenti;
     }
 
@@ -272,12 +555,65 @@ public class MyMultiset<E> implements Multiset<E> {
      * Restituisce l'insieme di elementi distinti contenuti in questo
      * multinsieme. L'ordine degli elementi nel set risultato non è specificato.
      *
+     * L'insieme restituito è una vista non modificabile basata sul multiset:
+     * riflette le modifiche successive e non ne copia gli elementi. Il suo
+     * iteratore è fail-fast come quello del multiset.
+     *
      * @return l'insieme di elementi distinti in questo multinsieme
      */
     @Override
     public Set<E> elementSet() {
-        return new HashSet<E>(mioHashMap.keySet());
+        if (vistaElementi == null)
+            vistaElementi = new VistaElementi();
+        return vistaElementi;
+    }
+    /**
+     * Restituisce l'insieme delle coppie (elemento, occorrenze) di questo
+     * multinsieme, una per ogni elemento distinto. Permette di leggere il
+     * contenuto del multinsieme in tempo proporzionale al numero di elementi
+     * distinti, indipendentemente dal numero di occorrenze.
+     *
+     * L'insieme restituito è una vista non modificabile basata sul multiset e
+     * le coppie non sono modificabili. Il suo spliterator può essere diviso,
+     * quindi {@code entrySet().parallelStream()} elabora le coppie in
+     * parallelo. Iteratore e spliterator sono fail-fast.
+     *
+     * @return l'insieme delle coppie (elemento, occorrenze)
+     */
+    public Set<Map.Entry<E, Integer>> entrySet() {
+        if (vistaVoci == null)
+            vistaVoci = new VistaVoci();
+        return vistaVoci;
+    }
+
+    /**
+     * Esegue l'azione data per ogni elemento distinto di questo multinsieme,
+     * passandole l'elemento e il suo numero di occorrenze. A differenza di
+     * {@link #entrySet()} non crea alcun oggetto per ogni coppia.
+     *
+     * @param action
+     *                   l'azione da eseguire
+     * @throws NullPointerException
+     *                                             se {@code action} è null
+     * @throws ConcurrentModificationException
+     *                                             se il multinsieme viene
+     *                                             modificato durante
+     *                                             l'esecuzione
+     */
+    public void forEachEntry(ObjIntConsumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("L'azione non può essere nulla");
+
+        int modificheAttese = modificheEffettuate;
+        Object[] tabella = chiavi;
+        int[] conteggi = occorrenze;
+        for (int i = 0; i < tabella.length && modificheAttese == modificheEffettuate; i++)
+            if (tabella[i] != null)
+                action.accept((E) tabella[i], conteggi[i]);
+        if (modificheAttese != modificheEffettuate)
+            throw new ConcurrentModificationException("Il multiset è stato modificato");
     }
+
     /**
      * Restituisce un iteratore per questo multinsieme. L'iteratore deve
      * presentare tutti gli elementi del multinsieme (in un ordine qualsiasi) e
@@ -314,7 +650,7 @@ public class MyMultiset<E> implements Multiset<E> {
     public boolean contains(Object element) {
         if(element == null)
             throw new NullPointerException("Il MyMultiset non può contenere oggetti null");
-        return mioHashMap.containsKey(element);
+        return cerca(element) >= 0;
     }
 
     /**
@@ -323,9 +659,13 @@ public class MyMultiset<E> implements Multiset<E> {
      */
     @Override
     public void clear() {
-        mioHashMap.clear();
+        // Riparto dalla forma compatta vuota, liberando la memoria
+        chiavi = CHIAVI_VUOTE;
+        occorrenze = OCCORRENZE_VUOTE;
+        elementiDistinti = 0;
         // Azzero il numero di elementi
         elementiPresenti = 0;
+        hashMultiset = 0;
         modificheEffettuate++;
     }
 
@@ -337,7 +677,7 @@ public class MyMultiset<E> implements Multiset<E> {
      */
     @Override
     public boolean isEmpty() {
-        return mioHashMap.isEmpty();
+        return elementiDistinti == 0;
     }
 
     /**
@@ -352,24 +692,23 @@ public class MyMultiset<E> implements Multiset<E> {
         if (obj == null)
             throw new NullPointerException("");
 
+        if (obj == this) return true;
         if (!(obj instanceof MyMultiset)) return false;
 
         MyMultiset<E> temp = (MyMultiset<E>) obj;
 
-        // Se non hanno lo stesso numero di elementi, sicuramente non sono uguali
-        if (temp.size() != this.size())
+        // Se non hanno lo stesso numero di elementi, di elementi distinti o lo stesso hash,
+        // sicuramente non sono uguali. Questi controlli costano O(1).
+        if (temp.size() != this.size() || temp.elementiDistinti != this.elementiDistinti
+                || temp.hashMultiset != this.hashMultiset)
             return false;
 
-       // Per sapere se tutti gli elementi di thi.mioHashMap sono presenti e hanno
-        // lo stesso numero di occorrenze temp.mioHashMap, ovvero dell'oggetto passato come parametro.
-        // Utilizzo un foreach in quanto non devo modificare i valori, ma solo confrontarli.
-        for (E e : this.mioHashMap.keySet()) {
-            Integer nullIsFalse = temp.mioHashMap.get(e);
-            // Se f è null vuol dire che non si hanno occorrenze di quel elemento,
-            // di conseguenza non è presente
-            if (f == null || !f.equals(this.mioHashMap.get(e)))
+        // Avendo lo stesso numero di elementi distinti, basta controllare che ogni elemento
+        // di this abbia lo stesso numero di occorrenze in temp, ovvero nell'oggetto passato come
+        // parametro. Se un elemento non è presente in temp, temp.count restituisce 0.
+        for (int i = 0; i < chiavi.length; i++)
+            if (chiavi[i] != null && temp.count(chiavi[i]) != occorrenze[i])
                 return false;
-        }
         return true;
     }
 
@@ -380,11 +719,426 @@ public class MyMultiset<E> implements Multiset<E> {
      */
     @Override
     public int hashCode() {
-        int hash = 0;
+        // Il valore è mantenuto da add, remove, setCount e clear
+        return hashMultiset;
+    }
+
+    /**
+     * Aggiunge a questo multinsieme tutte le occorrenze di un altro
+     * multinsieme. Lavora per coppie (elemento, occorrenze), quindi costa
+     * O(elementi distinti) e non O(occorrenze); per operandi grandi il
+     * calcolo viene eseguito in parallelo.
+     *
+     * @param other
+     *                  il multinsieme di cui aggiungere le occorrenze
+     * @return {@code true} se questo multinsieme è stato modificato
+     * @throws NullPointerException
+     *                                      se {@code other} è null
+     * @throws IllegalArgumentException
+     *                                      se un elemento supererebbe
+     *                                      {@code Integer.MAX_VALUE}
+     *                                      occorrenze
+     */
+    public boolean addAll(Multiset<? extends E> other) {
+        if (other == null)
+            throw new NullPointerException("Il multiset non può essere nullo");
+        if (other.isEmpty())
+            return false;
+
+        if (other instanceof MyMultiset) {
+            MyMultiset<E> temp = (MyMultiset<E>) other;
+            if (elementiDistinti + temp.elementiDistinti >= SOGLIA_PARALLELA)
+                adotta(combina(this, temp, SOMMA));
+            else {
+                // Se other è this la scansione non cambia struttura: le chiavi esistono già
+                Object[] tabella = temp.chiavi;
+                int[] conteggi = temp.occorrenze;
+                for (int i = 0; i < tabella.length; i++)
+                    if (tabella[i] != null)
+                        add((E) tabella[i], conteggi[i]);
+            }
+        } else
+            for (E e : other.elementSet())
+                add(e, other.count(e));
+        return true;
+    }
+
+    /**
+     * Riduce le occorrenze di ogni elemento di questo multinsieme al minimo
+     * tra le sue occorrenze qui e in un altro multinsieme: al termine questo
+     * multinsieme è l'intersezione dei due. Costa O(elementi distinti); per
+     * operandi grandi il calcolo viene eseguito in parallelo.
+     *
+     * @param other
+     *                  il multinsieme con cui intersecare
+     * @return {@code true} se questo multinsieme è stato modificato
+     * @throws NullPointerException
+     *                                  se {@code other} è null
+     */
+    public boolean retainAll(Multiset<?> other) {
+        if (other == null)
+            throw new NullPointerException("Il multiset non può essere nullo");
+
+        int elementiPrima = elementiPresenti;
+        if (other instanceof MyMultiset
+                && elementiDistinti + ((MyMultiset<?>) other).elementiDistinti >= SOGLIA_PARALLELA)
+            adotta(combina(this, (MyMultiset<E>) other, INTERSEZIONE));
+        else {
+            // Gli elementi da togliere vengono tolti dopo la scansione, perché
+            // liberare una cella sposta le celle successive
+            List<Object> daRimuovere = new ArrayList<>();
+            for (int i = 0; i < chiavi.length; i++)
+                if (chiavi[i] != null) {
+                    int altre = other.count(chiavi[i]);
+                    if (altre == 0)
+                        daRimuovere.add(chiavi[i]);
+                    else if (altre < occorrenze[i])
+                        setCount((E) chiavi[i], altre);
+                }
+            for (Object e : daRimuovere)
+                remove(e, Integer.MAX_VALUE);
+        }
+        return elementiPresenti != elementiPrima;
+    }
+
+    /**
+     * Toglie da questo multinsieme tutte le occorrenze di un altro
+     * multinsieme: al termine questo multinsieme è la differenza dei due.
+     * Costa O(elementi distinti); per operandi grandi il calcolo viene
+     * eseguito in parallelo.
+     *
+     * @param other
+     *                  il multinsieme di cui togliere le occorrenze
+     * @return {@code true} se questo multinsieme è stato modificato
+     * @throws NullPointerException
+     *                                  se {@code other} è null
+     */
+    public boolean removeAll(Multiset<?> other) {
+        if (other == null)
+            throw new NullPointerException("Il multiset non può essere nullo");
+
+        int elementiPrima = elementiPresenti;
+        if (other == this)
+            clear();
+        else if (other instanceof MyMultiset
+                && elementiDistinti + ((MyMultiset<?>) other).elementiDistinti >= SOGLIA_PARALLELA)
+            adotta(combina(this, (MyMultiset<E>) other, DIFFERENZA));
+        else if (other instanceof MyMultiset)
+            ((MyMultiset<?>) other).forEachEntry((e, n) -> remove(e, n));
+        else
+            for (Object e : other.elementSet())
+                remove(e, other.count(e));
+        return elementiPresenti != elementiPrima;
+    }
+
+    /**
+     * Restituisce un nuovo multinsieme in cui ogni elemento ha il massimo tra
+     * le sue occorrenze nei due multinsiemi dati.
+     *
+     * @param a
+     *              il primo multinsieme
+     * @param b
+     *              il secondo multinsieme
+     * @param <E>
+     *              il tipo degli elementi
+     * @return l'unione dei due multinsiemi
+     * @throws NullPointerException
+     *                                  se uno dei due multinsiemi è null
+     */
+    public static <E> MyMultiset<E> union(MyMultiset<E> a, MyMultiset<E> b) {
+        return combina(a, b, UNIONE);
+    }
+
+    /**
+     * Restituisce un nuovo multinsieme in cui ogni elemento ha il minimo tra
+     * le sue occorrenze nei due multinsiemi dati.
+     *
+     * @param a
+     *              il primo multinsieme
+     * @param b
+     *              il secondo multinsieme
+     * @param <E>
+     *              il tipo degli elementi
+     * @return l'intersezione dei due multinsiemi
+     * @throws NullPointerException
+     *                                  se uno dei due multinsiemi è null
+     */
+    public static <E> MyMultiset<E> intersection(MyMultiset<E> a, MyMultiset<E> b) {
+        return combina(a, b, INTERSEZIONE);
+    }
+
+    /**
+     * Restituisce un nuovo multinsieme in cui ogni elemento ha la somma delle
+     * sue occorrenze nei due multinsiemi dati.
+     *
+     * @param a
+     *              il primo multinsieme
+     * @param b
+     *              il secondo multinsieme
+     * @param <E>
+     *              il tipo degli elementi
+     * @return la somma dei due multinsiemi
+     * @throws NullPointerException
+     *                                      se uno dei due multinsiemi è null
+     * @throws IllegalArgumentException
+     *                                      se un elemento supererebbe
+     *                                      {@code Integer.MAX_VALUE}
+     *                                      occorrenze
+     */
+    public static <E> MyMultiset<E> sum(MyMultiset<E> a, MyMultiset<E> b) {
+        return combina(a, b, SOMMA);
+    }
+
+    /**
+     * Restituisce un nuovo multinsieme in cui ogni elemento ha le sue
+     * occorrenze in {@code a} meno quelle in {@code b}, se positive.
+     *
+     * @param a
+     *              il multinsieme da cui togliere
+     * @param b
+     *              il multinsieme delle occorrenze da togliere
+     * @param <E>
+     *              il tipo degli elementi
+     * @return la differenza dei due multinsiemi
+     * @throws NullPointerException
+     *                                  se uno dei due multinsiemi è null
+     */
+    public static <E> MyMultiset<E> difference(MyMultiset<E> a, MyMultiset<E> b) {
+        return combina(a, b, DIFFERENZA);
+    }
+
+    /**
+     * Restituisce un {@link Collector} che raccoglie gli elementi di uno
+     * stream in un nuovo MyMultiset. Il collector è {@code UNORDERED}: in
+     * uno stream parallelo ogni thread riempie un proprio multinsieme
+     * parziale, e i parziali vengono uniti sommando le occorrenze elemento
+     * per elemento, senza ripetere le singole occorrenze.
+     *
+     * @param <E>
+     *              il tipo degli elementi
+     * @return il collector
+     */
+    public static <E> Collector<E, ?, MyMultiset<E>> toMultiset() {
+        return toMultiset(Function.identity());
+    }
 
-        for (E e : mioHashMap.keySet())
-            hash += 31 * e.hashCode() + mioHashMap.get(e).hashCode();
+    /**
+     * Restituisce un {@link Collector} che applica una funzione ad ogni
+     * elemento di uno stream e raccoglie i risultati in un nuovo MyMultiset,
+     * come {@link #toMultiset()}.
+     *
+     * @param mapper
+     *                   la funzione da applicare agli elementi dello stream;
+     *                   non deve restituire null
+     * @param <T>
+     *                   il tipo degli elementi dello stream
+     * @param <E>
+     *                   il tipo degli elementi del multinsieme
+     * @return il collector
+     * @throws NullPointerException
+     *                                  se {@code mapper} è null
+     */
+    public static <T, E> Collector<T, ?, MyMultiset<E>> toMultiset(Function<? super T, ? extends E> mapper) {
+        if (mapper == null)
+            throw new NullPointerException("La funzione non può essere nulla");
+
+        return Collector.of(
+                MyMultiset::new,
+                (multiset, elemento) -> multiset.add(mapper.apply(elemento)),
+                MyMultiset::unisciParziali,
+                Collector.Characteristics.UNORDERED);
+    }
 
-        return hash;
+    // Metodi privati per le operazioni tra multinsiemi
+
+    // Combinatore dei collector: aggiunge il parziale più piccolo al più grande.
+    private static <E> MyMultiset<E> unisciParziali(MyMultiset<E> a, MyMultiset<E> b) {
+        if (a.elementiDistinti < b.elementiDistinti) {
+            b.addAll(a);
+            return b;
+        }
+        a.addAll(b);
+        return a;
+    }
+
+    // Calcola l'operazione tra i due multinsiemi, in parallelo se sono abbastanza grandi.
+    private static <E> MyMultiset<E> combina(MyMultiset<E> a, MyMultiset<E> b, IntBinaryOperator operazione) {
+        if (a == null || b == null)
+            throw new NullPointerException("Il multiset non può essere nullo");
+
+        int celle = a.chiavi.length + b.chiavi.length;
+        if (a.elementiDistinti + b.elementiDistinti < SOGLIA_PARALLELA) {
+            MyMultiset<E> risultato = new MyMultiset<>();
+            combinaCelle(a, b, operazione, 0, celle, risultato);
+            return risultato;
+        }
+        return ForkJoinPool.commonPool().invoke(new CombinaTask<>(a, b, operazione, 0, celle));
+    }
+
+    // Calcola l'operazione sulle celle [inizio, fine) della concatenazione delle tabelle di a e b,
+    // inserendo gli elementi con occorrenze positive nel risultato. Legge soltanto a e b.
+    private static <E> void combinaCelle(MyMultiset<E> a, MyMultiset<E> b, IntBinaryOperator operazione,
+                                         int inizio, int fine, MyMultiset<E> risultato) {
+        int lunghezzaA = a.chiavi.length;
+        for (int i = inizio; i < fine; i++) {
+            int n;
+            Object chiave;
+            if (i < lunghezzaA) {
+                chiave = a.chiavi[i];
+                if (chiave == null)
+                    continue;
+                n = operazione.applyAsInt(a.occorrenze[i], b.count(chiave));
+            } else {
+                chiave = b.chiavi[i - lunghezzaA];
+                // Gli elementi presenti anche in a sono già stati considerati
+                if (chiave == null || a.contains(chiave))
+                    continue;
+                n = operazione.applyAsInt(0, b.occorrenze[i - lunghezzaA]);
+            }
+            if (n > 0)
+                risultato.inserisciAssente(chiave, n);
+        }
+    }
+
+    // Inserisce tutti gli elementi di un multinsieme che non ha elementi in comune con questo.
+    private void assorbiDisgiunto(MyMultiset<E> other) {
+        for (int i = 0; i < other.chiavi.length; i++)
+            if (other.chiavi[i] != null)
+                inserisciAssente(other.chiavi[i], other.occorrenze[i]);
+    }
+
+    // Inserisce un elemento che non è presente, con n > 0 occorrenze.
+    private void inserisciAssente(Object element, int n) {
+        inserisci(cerca(element), element, n);
+        elementiPresenti += n;
+        hashMultiset += n;
+        modificheEffettuate++;
+    }
+
+    // Sostituisce il contenuto di questo multinsieme con quello di un risultato appena calcolato.
+    private void adotta(MyMultiset<E> risultato) {
+        chiavi = risultato.chiavi;
+        occorrenze = risultato.occorrenze;
+        elementiDistinti = risultato.elementiDistinti;
+        elementiPresenti = risultato.elementiPresenti;
+        hashMultiset = risultato.hashMultiset;
+        modificheEffettuate++;
+    }
+
+    // Metodi privati per la gestione della tabella
+
+    // Mescola i bit dell'hash, così che anche hash con i bit bassi uguali finiscano in celle diverse
+    private static int hash(Object element) {
+        int h = element.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // true se gli array sono in forma compatta
+    private boolean compatto() {
+        return chiavi.length <= MASSIMO_COMPATTO;
+    }
+
+    // Restituisce la cella che contiene element oppure, se element non è presente,
+    // -(c + 1) dove c è la cella libera in cui andrebbe inserito.
+    // In forma compatta la cella libera è quella che segue l'ultimo elemento, e può
+    // essere fuori dagli array: sarà inserisci a farli crescere.
+    private int cerca(Object element) {
+        if (compatto()) {
+            for (int i = 0; i < elementiDistinti; i++)
+                if (chiavi[i].equals(element))
+                    return i;
+            return -(elementiDistinti + 1);
+        }
+
+        int maschera = chiavi.length - 1;
+        int cella = hash(element) & maschera;
+        while (chiavi[cella] != null) {
+            if (chiavi[cella].equals(element))
+                return cella;
+            cella = (cella + 1) & maschera;
+        }
+        return -(cella + 1);
+    }
+
+    // Inserisce un elemento non presente; risultatoRicerca è il valore negativo restituito da cerca.
+    private void inserisci(int risultatoRicerca, Object element, int n) {
+        if (compatto()) {
+            if (elementiDistinti == chiavi.length) {
+                if (chiavi.length < MASSIMO_COMPATTO) {
+                    // Resto in forma compatta, raddoppiando gli array
+                    int capacita = Math.max(2, 2 * chiavi.length);
+                    chiavi = Arrays.copyOf(chiavi, capacita);
+                    occorrenze = Arrays.copyOf(occorrenze, capacita);
+                } else {
+                    ridistribuisci(CAPACITA_INIZIALE);
+                    risultatoRicerca = cerca(element);
+                }
+            }
+        } else if (2 * (elementiDistinti + 1) > chiavi.length) {
+            ridistribuisci(2 * chiavi.length);
+            risultatoRicerca = cerca(element);
+        }
+        int cella = -(risultatoRicerca + 1);
+        chiavi[cella] = element;
+        occorrenze[cella] = n;
+        elementiDistinti++;
+        hashMultiset += 31 * element.hashCode();
+    }
+
+    // Libera una cella. Gli elementi successivi dello stesso gruppo vengono spostati indietro,
+    // così che la ricerca possa sempre fermarsi alla prima cella libera.
+    private void liberaCella(int cella) {
+        hashMultiset -= 31 * chiavi[cella].hashCode();
+        if (compatto()) {
+            // Sposto l'ultimo elemento nella cella liberata
+            int ultima = elementiDistinti - 1;
+            chiavi[cella] = chiavi[ultima];
+            occorrenze[cella] = occorrenze[ultima];
+            chiavi[ultima] = null;
+            occorrenze[ultima] = 0;
+            elementiDistinti--;
+            return;
+        }
+
+        int maschera = chiavi.length - 1;
+        int successiva = cella;
+        while (true) {
+            successiva = (successiva + 1) & maschera;
+            if (chiavi[successiva] == null)
+                break;
+            // Se la cella di partenza dell'elemento è tra cella (esclusa) e successiva (inclusa)
+            // l'elemento resta dov'è, altrimenti viene spostato nella cella liberata
+            int partenza = hash(chiavi[successiva]) & maschera;
+            boolean resta = cella <= successiva
+                    ? cella < partenza && partenza <= successiva
+                    : cella < partenza || partenza <= successiva;
+            if (!resta) {
+                chiavi[cella] = chiavi[successiva];
+                occorrenze[cella] = occorrenze[successiva];
+                cella = successiva;
+            }
+        }
+        chiavi[cella] = null;
+        occorrenze[cella] = 0;
+        elementiDistinti--;
+    }
+
+    // Crea una tabella hash della capacità data, maggiore di MASSIMO_COMPATTO, e vi
+    // reinserisce tutti gli elementi, che possono provenire anche dalla forma compatta.
+    private void ridistribuisci(int capacita) {
+        Object[] vecchieChiavi = chiavi;
+        int[] vecchieOccorrenze = occorrenze;
+        chiavi = new Object[capacita];
+        occorrenze = new int[capacita];
+
+        int maschera = chiavi.length - 1;
+        for (int i = 0; i < vecchieChiavi.length; i++)
+            if (vecchieChiavi[i] != null) {
+                int cella = hash(vecchieChiavi[i]) & maschera;
+                while (chiavi[cella] != null)
+                    cella = (cella + 1) & maschera;
+                chiavi[cella] = vecchieChiavi[i];
+                occorrenze[cella] = vecchieOccorrenze[i];
+            }
     }
 }
@@ -0,0 +1,843 @@
+import java.util.*;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Implementazione:
+ * TreeMultiset è un multiset ordinato, secondo l'ordinamento naturale degli elementi o secondo
+ * un Comparator dato alla costruzione. Risponde in O(log n), con n numero di elementi distinti,
+ * a domande sull'ordine che per MyMultiset richiederebbero di ordinare tutti gli elementi:
+ * quante occorrenze cadono in un intervallo (countInRange), quale elemento occupa una certa
+ * posizione (select, ad esempio la mediana) e quante occorrenze precedono un elemento (rankOf).
+ *
+ * Gli elementi distinti sono memorizzati in un albero AVL. Ogni nodo contiene un elemento, il
+ * suo numero di occorrenze e, per il sottoalbero di cui è radice, l'altezza, il numero di
+ * elementi distinti e il numero totale di occorrenze. Questi subtotali permettono di contare e
+ * di selezionare scendendo un solo cammino dell'albero.
+ * headMultiset e tailMultiset restituiscono viste modificabili di una parte del multiset,
+ * e l'iteratore presenta gli elementi in ordine crescente.
+ *
+ * @param <E> il tipo degli elementi del multiset
+ */
+public class TreeMultiset<E> implements Multiset<E> {
+
+    // Attributi della classe
+
+    // Ordinamento degli elementi; null indica l'ordinamento naturale.
+    private final Comparator<? super E> comparatore;
+    // Radice dell'albero AVL, null se il multiset è vuoto.
+    private Nodo<E> radice;
+    // Ad ogni azione di add, remove o setCount verrà incrementato.
+    // Servirà agli iteratori, per controllare che non vengano effettuate modifiche durante l'iterazione.
+    private int modificheEffettuate;
+
+    // Nodo dell'albero AVL
+    private static class Nodo<E> {
+        private E elemento;
+        private int occorrenze;
+        private Nodo<E> sinistro;
+        private Nodo<E> destro;
+        // Subtotali del sottoalbero di cui il nodo è radice
+        private int altezza;
+        private int distinti;
+        private long totale;
+
+        private Nodo(E elemento, int occorrenze) {
+            this.elemento = elemento;
+            this.occorrenze = occorrenze;
+            this.altezza = 1;
+            this.distinti = 1;
+            this.totale = occorrenze;
+        }
+    }
+
+    // Visita in ordine dei nodi i cui elementi cadono tra minimo e massimo (null indica
+    // nessun limite). Tiene in una pila i nodi di cui deve ancora visitare il sottoalbero destro.
+    private class IteratoreNodi implements Iterator<Nodo<E>> {
+        private final int modificheAttese = modificheEffettuate;
+        private final Deque<Nodo<E>> pila = new ArrayDeque<>();
+        private final E massimo;
+        private final boolean massimoIncluso;
+
+        private IteratoreNodi(E minimo, boolean minimoIncluso, E massimo, boolean massimoIncluso) {
+            this.massimo = massimo;
+            this.massimoIncluso = massimoIncluso;
+            // Scendo verso il minimo, mettendo nella pila i nodi che non lo precedono
+            Nodo<E> n = radice;
+            while (n != null) {
+                if (minimo == null || sopraMinimo(n.elemento, minimo, minimoIncluso)) {
+                    pila.push(n);
+                    n = n.sinistro;
+                } else
+                    n = n.destro;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pila.isEmpty() && (massimo == null || sottoMassimo(pila.peek().elemento, massimo, massimoIncluso));
+        }
+
+        @Override
+        public Nodo<E> next() {
+            if (modificheAttese != modificheEffettuate)
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Nodo<E> toReturn = pila.pop();
+            for (Nodo<E> n = toReturn.destro; n != null; n = n.sinistro)
+                pila.push(n);
+            return toReturn;
+        }
+    }
+
+    // Iteratore sulle occorrenze: ogni elemento viene presentato tante volte quante sono le sue occorrenze
+    private class Itr implements Iterator<E> {
+        private final IteratoreNodi nodi;
+        private E elementoCorrente;
+        private int occorrenzeElementoCorrente;
+
+        private Itr(IteratoreNodi nodi) {
+            this.nodi = nodi;
+            this.elementoCorrente = null;
+            this.occorrenzeElementoCorrente = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return occorrenzeElementoCorrente > 0 || nodi.hasNext();
+        }
+
+        @Override
+        public E next() {
+            if (nodi.modificheAttese != modificheEffettuate)
+                // Il multiset è stato modificato durante l'iterazione
+                throw new ConcurrentModificationException("L'iteratore è stato modificato");
+
+            if (occorrenzeElementoCorrente == 0) {
+                Nodo<E> n = nodi.next();
+                elementoCorrente = n.elemento;
+                occorrenzeElementoCorrente = n.occorrenze;
+            }
+            occorrenzeElementoCorrente--;
+            return elementoCorrente;
+        }
+    }
+
+    // Vista non modificabile degli elementi distinti compresi tra minimo e massimo
+    private class VistaElementi extends AbstractSet<E> {
+        private final E minimo;
+        private final boolean minimoIncluso;
+        private final E massimo;
+        private final boolean massimoIncluso;
+
+        private VistaElementi(E minimo, boolean minimoIncluso, E massimo, boolean massimoIncluso) {
+            this.minimo = minimo;
+            this.minimoIncluso = minimoIncluso;
+            this.massimo = massimo;
+            this.massimoIncluso = massimoIncluso;
+        }
+
+        @Override
+        public int size() {
+            return distintiMinori(massimo, massimoIncluso) - distintiMinori(minimo, !minimoIncluso);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && nellIntervallo((E) o, minimo, minimoIncluso, massimo, massimoIncluso)
+                    && cerca(o) != null;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final IteratoreNodi nodi = new IteratoreNodi(minimo, minimoIncluso, massimo, massimoIncluso);
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return nodi.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return nodi.next().elemento;
+                }
+            };
+        }
+    }
+
+    // Vista di un intervallo del multiset. Le modifiche passano al multiset; aggiungere
+    // un elemento fuori dall'intervallo non è consentito.
+    private class SottoMultiset implements Multiset<E> {
+        private final E minimo;
+        private final boolean minimoIncluso;
+        private final E massimo;
+        private final boolean massimoIncluso;
+
+        private SottoMultiset(E minimo, boolean minimoIncluso, E massimo, boolean massimoIncluso) {
+            this.minimo = minimo;
+            this.minimoIncluso = minimoIncluso;
+            this.massimo = massimo;
+            this.massimoIncluso = massimoIncluso;
+        }
+
+        private boolean contiene(Object element) {
+            if (element == null)
+                throw new NullPointerException();
+            return nellIntervallo((E) element, minimo, minimoIncluso, massimo, massimoIncluso);
+        }
+
+        private void controllaIntervallo(E element) {
+            if (!contiene(element))
+                throw new IllegalArgumentException("L'elemento è fuori dall'intervallo della vista");
+        }
+
+        @Override
+        public int size() {
+            long totale = occorrenzeMinori(massimo, massimoIncluso) - occorrenzeMinori(minimo, !minimoIncluso);
+            return (int) Math.min(totale, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int count(Object element) {
+            return contiene(element) ? TreeMultiset.this.count(element) : 0;
+        }
+
+        @Override
+        public int add(E element, int occurrences) {
+            controllaIntervallo(element);
+            return TreeMultiset.this.add(element, occurrences);
+        }
+
+        @Override
+        public void add(E element) {
+            add(element, 1);
+        }
+
+        @Override
+        public int remove(Object element, int occurrences) {
+            if (occurrences < 0)
+                throw new IllegalArgumentException("L'occorrenza non può essere minore di 0");
+            return contiene(element) ? TreeMultiset.this.remove(element, occurrences) : 0;
+        }
+
+        @Override
+        public boolean remove(Object element) {
+            return remove(element, 1) > 0;
+        }
+
+        @Override
+        public int setCount(E element, int count) {
+            controllaIntervallo(element);
+            return TreeMultiset.this.setCount(element, count);
+        }
+
+        @Override
+        public Set<E> elementSet() {
+            return new VistaElementi(minimo, minimoIncluso, massimo, massimoIncluso);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Itr(new IteratoreNodi(minimo, minimoIncluso, massimo, massimoIncluso));
+        }
+
+        @Override
+        public boolean contains(Object element) {
+            return count(element) > 0;
+        }
+
+        @Override
+        public void clear() {
+            List<E> daRimuovere = new ArrayList<>(elementSet());
+            for (E e : daRimuovere)
+                TreeMultiset.this.setCount(e, 0);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !new IteratoreNodi(minimo, minimoIncluso, massimo, massimoIncluso).hasNext();
+        }
+    }
+
+    /**
+     * Crea un multiset vuoto, ordinato secondo l'ordinamento naturale degli
+     * elementi, che devono implementare {@link Comparable}.
+     */
+    public TreeMultiset() {
+        this(null);
+    }
+
+    /**
+     * Crea un multiset vuoto, ordinato secondo il comparatore dato.
+     *
+     * @param comparator
+     *                       il comparatore degli elementi; se null si usa
+     *                       l'ordinamento naturale
+     */
+    public TreeMultiset(Comparator<? super E> comparator) {
+        this.comparatore = comparator;
+        this.radice = null;
+        this.modificheEffettuate = 0;
+    }
+
+    /**
+     * Restituisce il numero totale di elementi in questo multinsieme, contando
+     * tutte le occorrenze.
+     *
+     * @return il numero totale di elementi, limitato a
+     *         {@code Integer.MAX_VALUE}
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(totale(radice), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di occorrenze di un certo elemento in questo
+     * multinsieme. Costa O(log n).
+     *
+     * @param element
+     *                    l'elemento di cui contare le occorrenze
+     * @return il numero di occorrenze dell'elemento, 0 se non è presente
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     * @throws ClassCastException
+     *                                  se l'elemento non è confrontabile con
+     *                                  quelli del multinsieme
+     */
+    @Override
+    public int count(Object element) {
+        if (element == null)
+            throw new NullPointerException();
+        Nodo<E> nodo = cerca(element);
+        return nodo == null ? 0 : nodo.occorrenze;
+    }
+
+    /**
+     * Aggiunge un numero di occorrenze di un certo elemento a questo multiset.
+     * Costa O(log n).
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        aggiungere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica.
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo, o
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int add(E element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+
+        int occorrenzePrecedenti = count(element);
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
+        if (Integer.MAX_VALUE - occorrenzePrecedenti < occurrences)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0 o maggiore di " + Integer.MAX_VALUE);
+
+        radice = imposta(radice, element, occorrenzePrecedenti + occurrences);
+        modificheEffettuate++;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Aggiunge una singola occorrenza di un certo elemento a questo multiset.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere l'occorrenza
+     * @throws IllegalArgumentException
+     *                                      se questa operazione comporterebbe
+     *                                      più di {@code Integer.MAX_VALUE}
+     *                                      occorrenze dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public void add(E element) {
+        add(element, 1);
+    }
+
+    /**
+     * Rimuove da questo multinsieme un dato numero di occorrenze di un
+     * elemento. Se il multinsieme contiene meno del dato numero di occorrenze,
+     * tutte le occorrenze verranno rimosse. Costa O(log n).
+     *
+     * @param element
+     *                        l'elemento di cui rimuovere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze dell'elemento da
+     *                        rimuovere. Può essere zero, nel qual caso non
+     *                        verrà apportata alcuna modifica
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int remove(Object element, int occurrences) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (occurrences < 0)
+            throw new IllegalArgumentException("L'occorrenza non può essere minore di 0");
+
+        Nodo<E> nodo = cerca(element);
+        if (nodo == null)
+            return 0;
+        int occorrenzePrecedenti = nodo.occorrenze;
+        if (occurrences == 0)
+            return occorrenzePrecedenti;
+
+        radice = imposta(radice, nodo.elemento, Math.max(0, occorrenzePrecedenti - occurrences));
+        modificheEffettuate++;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Rimuove una singola occorrenza di un certo elemento da questo
+     * multinsieme, se esso è presente.
+     *
+     * @param element
+     *                    l'elemento di cui rimuovere l'occorrenza
+     * @return {@code true} se una occorrenza di {@code element} è stata
+     *         rimossa
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean remove(Object element) {
+        return remove(element, 1) > 0;
+    }
+
+    /**
+     * Aggiunge o rimuove le occorrenze necessarie a un elemento in modo che
+     * esso raggiunga il conteggio desiderato. Costa O(log n).
+     *
+     * @param element
+     *                    l'elemento di cui aggiungere o rimuovere occorrenze
+     * @param count
+     *                    il numero di occorrenze da raggiungere
+     * @return il numero di occorrenze dell'elemento prima dell'operazione;
+     *         possibilmente zero
+     * @throws IllegalArgumentException
+     *                                      se {@code count} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int setCount(E element, int count) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (count < 0)
+            throw new IllegalArgumentException("Il numero di occorrenze non può essere minore di 0");
+
+        int occorrenzePrecedenti = count(element);
+        if (occorrenzePrecedenti == count)
+            return occorrenzePrecedenti;
+
+        radice = imposta(radice, element, count);
+        modificheEffettuate++;
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Restituisce una vista non modificabile dell'insieme di elementi
+     * distinti, che li presenta in ordine crescente.
+     *
+     * @return l'insieme di elementi distinti in questo multinsieme
+     */
+    @Override
+    public Set<E> elementSet() {
+        return new VistaElementi(null, true, null, true);
+    }
+
+    /**
+     * Restituisce un iteratore fail-fast per questo multinsieme, che presenta
+     * gli elementi in ordine crescente; le occorrenze dello stesso elemento
+     * vengono presentate in sequenza. L'iteratore non implementa l'operazione
+     * {@code remove()}.
+     *
+     * @return un iteratore per questo multinsieme
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(new IteratoreNodi(null, true, null, true));
+    }
+
+    /**
+     * Determina se questo multinsieme contiene l'elemento specificato.
+     *
+     * @param element
+     *                    l'elemento da cercare
+     * @return {@code true} se questo multinsieme contiene almeno una occorrenza
+     *         dell'elemento
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean contains(Object element) {
+        if (element == null)
+            throw new NullPointerException("Il TreeMultiset non può contenere oggetti null");
+        return cerca(element) != null;
+    }
+
+    /**
+     * Rimuove tutti gli elementi da questo multinsieme.
+     */
+    @Override
+    public void clear() {
+        radice = null;
+        modificheEffettuate++;
+    }
+
+    /**
+     * Determina se questo multinsieme è vuoto.
+     *
+     * @return {@code true} se questo multinsieme è vuoto
+     */
+    @Override
+    public boolean isEmpty() {
+        return radice == null;
+    }
+
+    /**
+     * Restituisce il numero di occorrenze degli elementi compresi tra
+     * {@code lo} e {@code hi}, entrambi inclusi. Costa O(log n).
+     *
+     * @param lo
+     *               il limite inferiore, incluso
+     * @param hi
+     *               il limite superiore, incluso
+     * @return il numero di occorrenze nell'intervallo
+     * @throws NullPointerException
+     *                                      se uno dei limiti è null
+     * @throws IllegalArgumentException
+     *                                      se {@code lo} segue {@code hi}
+     */
+    public long countInRange(E lo, E hi) {
+        if (lo == null || hi == null)
+            throw new NullPointerException("I limiti dell'intervallo non possono essere nulli");
+        if (confronta(lo, hi) > 0)
+            throw new IllegalArgumentException("Il limite inferiore segue quello superiore");
+
+        return occorrenzeMinori(hi, true) - occorrenzeMinori(lo, false);
+    }
+
+    /**
+     * Restituisce l'elemento in posizione {@code rank} nella sequenza
+     * ordinata di tutte le occorrenze, contando da 0. Ad esempio
+     * {@code select(size() / 2)} è la mediana. Costa O(log n).
+     *
+     * @param rank
+     *                 la posizione, compresa tra 0 e size() - 1
+     * @return l'elemento in quella posizione
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è valida
+     */
+    public E select(long rank) {
+        if (rank < 0 || rank >= totale(radice))
+            throw new IndexOutOfBoundsException("Posizione non valida: " + rank);
+
+        Nodo<E> n = radice;
+        while (true) {
+            long aSinistra = totale(n.sinistro);
+            if (rank < aSinistra)
+                n = n.sinistro;
+            else if (rank < aSinistra + n.occorrenze)
+                return n.elemento;
+            else {
+                rank -= aSinistra + n.occorrenze;
+                n = n.destro;
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di occorrenze degli elementi strettamente minori
+     * dell'elemento dato, cioè la posizione della sua prima occorrenza nella
+     * sequenza ordinata. L'elemento non deve essere necessariamente presente.
+     * Costa O(log n).
+     *
+     * @param element
+     *                    l'elemento
+     * @return il numero di occorrenze che lo precedono
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    public long rankOf(E element) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        return occorrenzeMinori(element, false);
+    }
+
+    /**
+     * Restituisce una vista della parte di questo multinsieme che contiene gli
+     * elementi minori di {@code toElement} (o uguali, se {@code inclusive}).
+     * Le modifiche alla vista si riflettono sul multinsieme e viceversa.
+     *
+     * @param toElement
+     *                      il limite superiore
+     * @param inclusive
+     *                      true se il limite è incluso
+     * @return la vista
+     * @throws NullPointerException
+     *                                  se {@code toElement} è null
+     */
+    public Multiset<E> headMultiset(E toElement, boolean inclusive) {
+        if (toElement == null)
+            throw new NullPointerException("Il limite non può essere nullo");
+        return new SottoMultiset(null, true, toElement, inclusive);
+    }
+
+    /**
+     * Restituisce una vista della parte di questo multinsieme che contiene gli
+     * elementi maggiori di {@code fromElement} (o uguali, se
+     * {@code inclusive}). Le modifiche alla vista si riflettono sul
+     * multinsieme e viceversa.
+     *
+     * @param fromElement
+     *                        il limite inferiore
+     * @param inclusive
+     *                        true se il limite è incluso
+     * @return la vista
+     * @throws NullPointerException
+     *                                  se {@code fromElement} è null
+     */
+    public Multiset<E> tailMultiset(E fromElement, boolean inclusive) {
+        if (fromElement == null)
+            throw new NullPointerException("Il limite non può essere nullo");
+        return new SottoMultiset(fromElement, inclusive, null, true);
+    }
+
+    /*
+     * Due TreeMultiset sono uguali se e solo se contengono esattamente gli
+     * stessi elementi con le stesse molteplicità. Gli elementi vengono cercati
+     * con l'ordinamento dell'altro albero: se questo non sa confrontarli i due
+     * multiset sono diversi, come in AbstractSet.equals.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof TreeMultiset)) return false;
+
+        TreeMultiset<?> temp = (TreeMultiset<?>) obj;
+        if (totale(temp.radice) != totale(radice) || distinti(temp.radice) != distinti(radice))
+            return false;
+
+        try {
+            for (Iterator<Nodo<E>> it = new IteratoreNodi(null, true, null, true); it.hasNext(); ) {
+                Nodo<E> n = it.next();
+                if (temp.count(n.elemento) != n.occorrenze)
+                    return false;
+            }
+        } catch (ClassCastException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Stessa funzione di hash di MyMultiset.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+
+        for (Iterator<Nodo<E>> it = new IteratoreNodi(null, true, null, true); it.hasNext(); ) {
+            Nodo<E> n = it.next();
+            hash += 31 * n.elemento.hashCode() + n.occorrenze;
+        }
+
+        return hash;
+    }
+
+    // Metodi privati per il confronto degli elementi
+
+    private int confronta(Object e1, E e2) {
+        if (comparatore != null)
+            return comparatore.compare((E) e1, e2);
+        return ((Comparable<? super E>) e1).compareTo(e2);
+    }
+
+    // true se e segue il minimo (o coincide con esso, se incluso)
+    private boolean sopraMinimo(E e, E minimo, boolean incluso) {
+        int c = confronta(e, minimo);
+        return c > 0 || (c == 0 && incluso);
+    }
+
+    // true se e precede il massimo (o coincide con esso, se incluso)
+    private boolean sottoMassimo(E e, E massimo, boolean incluso) {
+        int c = confronta(e, massimo);
+        return c < 0 || (c == 0 && incluso);
+    }
+
+    private boolean nellIntervallo(E e, E minimo, boolean minimoIncluso, E massimo, boolean massimoIncluso) {
+        return (minimo == null || sopraMinimo(e, minimo, minimoIncluso))
+                && (massimo == null || sottoMassimo(e, massimo, massimoIncluso));
+    }
+
+    // Metodi privati per le interrogazioni
+
+    private Nodo<E> cerca(Object element) {
+        Nodo<E> n = radice;
+        while (n != null) {
+            int c = confronta(element, n.elemento);
+            if (c == 0)
+                return n;
+            n = c < 0 ? n.sinistro : n.destro;
+        }
+        return null;
+    }
+
+    // Occorrenze degli elementi minori di e (o uguali, se incluso).
+    // Con e null restituisce 0 se incluso è false e il totale altrimenti, così che
+    // un limite assente si comporti come "nessun limite".
+    private long occorrenzeMinori(E e, boolean incluso) {
+        if (e == null)
+            return incluso ? totale(radice) : 0;
+
+        long toReturn = 0;
+        Nodo<E> n = radice;
+        while (n != null) {
+            int c = confronta(e, n.elemento);
+            if (c < 0)
+                n = n.sinistro;
+            else if (c > 0) {
+                toReturn += totale(n.sinistro) + n.occorrenze;
+                n = n.destro;
+            } else
+                return toReturn + totale(n.sinistro) + (incluso ? n.occorrenze : 0);
+        }
+        return toReturn;
+    }
+
+    // Come occorrenzeMinori, ma conta gli elementi distinti.
+    private int distintiMinori(E e, boolean incluso) {
+        if (e == null)
+            return incluso ? distinti(radice) : 0;
+
+        int toReturn = 0;
+        Nodo<E> n = radice;
+        while (n != null) {
+            int c = confronta(e, n.elemento);
+            if (c < 0)
+                n = n.sinistro;
+            else if (c > 0) {
+                toReturn += distinti(n.sinistro) + 1;
+                n = n.destro;
+            } else
+                return toReturn + distinti(n.sinistro) + (incluso ? 1 : 0);
+        }
+        return toReturn;
+    }
+
+    // Metodi privati per la gestione dell'albero AVL
+
+    private static long totale(Nodo<?> n) {
+        return n == null ? 0 : n.totale;
+    }
+
+    private static int distinti(Nodo<?> n) {
+        return n == null ? 0 : n.distinti;
+    }
+
+    private static int altezza(Nodo<?> n) {
+        return n == null ? 0 : n.altezza;
+    }
+
+    // Imposta a occorrenze il numero di occorrenze di e nel sottoalbero di radice n; con 0
+    // l'elemento viene rimosso. Restituisce la nuova radice del sottoalbero, ribilanciato.
+    private Nodo<E> imposta(Nodo<E> n, E e, int occorrenze) {
+        if (n == null)
+            return occorrenze == 0 ? null : new Nodo<>(e, occorrenze);
+
+        int c = confronta(e, n.elemento);
+        if (c < 0)
+            n.sinistro = imposta(n.sinistro, e, occorrenze);
+        else if (c > 0)
+            n.destro = imposta(n.destro, e, occorrenze);
+        else if (occorrenze > 0)
+            n.occorrenze = occorrenze;
+        else
+            return rimuoviNodo(n);
+        return bilancia(n);
+    }
+
+    // Rimuove la radice del sottoalbero, sostituendola con il minimo del sottoalbero destro.
+    private Nodo<E> rimuoviNodo(Nodo<E> n) {
+        if (n.sinistro == null)
+            return n.destro;
+        if (n.destro == null)
+            return n.sinistro;
+
+        Nodo<E> minimo = n.destro;
+        while (minimo.sinistro != null)
+            minimo = minimo.sinistro;
+        n.elemento = minimo.elemento;
+        n.occorrenze = minimo.occorrenze;
+        n.destro = rimuoviMinimo(n.destro);
+        return bilancia(n);
+    }
+
+    private Nodo<E> rimuoviMinimo(Nodo<E> n) {
+        if (n.sinistro == null)
+            return n.destro;
+        n.sinistro = rimuoviMinimo(n.sinistro);
+        return bilancia(n);
+    }
+
+    private void aggiorna(Nodo<E> n) {
+        n.altezza = 1 + Math.max(altezza(n.sinistro), altezza(n.destro));
+        n.distinti = 1 + distinti(n.sinistro) + distinti(n.destro);
+        n.totale = n.occorrenze + totale(n.sinistro) + totale(n.destro);
+    }
+
+    private Nodo<E> bilancia(Nodo<E> n) {
+        aggiorna(n);
+        int fattore = altezza(n.sinistro) - altezza(n.destro);
+        if (fattore > 1) {
+            if (altezza(n.sinistro.sinistro) < altezza(n.sinistro.destro))
+                n.sinistro = ruotaSinistra(n.sinistro);
+            return ruotaDestra(n);
+        }
+        if (fattore < -1) {
+            if (altezza(n.destro.destro) < altezza(n.destro.sinistro))
+                n.destro = ruotaDestra(n.destro);
+            return ruotaSinistra(n);
+        }
+        return n;
+    }
+
+    private Nodo<E> ruotaDestra(Nodo<E> n) {
+        Nodo<E> nuovaRadice = n.sinistro;
+        n.sinistro = nuovaRadice.destro;
+        nuovaRadice.destro = n;
+        aggiorna(n);
+        aggiorna(nuovaRadice);
+        return nuovaRadice;
+    }
+
+    private Nodo<E> ruotaSinistra(Nodo<E> n) {
+        Nodo<E> nuovaRadice = n.destro;
+        n.destro = nuovaRadice.sinistro;
+        nuovaRadice.sinistro = n;
+        aggiorna(n);
+        aggiorna(nuovaRadice);
+        return nuovaRadice;
+    }
+}
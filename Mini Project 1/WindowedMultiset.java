@@ -0,0 +1,361 @@
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * @author Luca Tesei (template)
+ *       **Simone Cisca - simone.cisca@studenti.unicam.it** (implementazione)
+ *
+ * Implementazione:
+ * WindowedMultiset è un multiset che conta solo le occorrenze aggiunte in una finestra di tempo
+ * recente, ad esempio gli ultimi N minuti: le occorrenze più vecchie scadono da sole, senza dover
+ * ricostruire il multiset ad ogni finestra.
+ *
+ * La finestra è divisa in un numero fissato di segmenti di uguale durata, disposti in un array
+ * circolare: ogni segmento è un MyMultiset con le occorrenze aggiunte nel suo intervallo di
+ * tempo. Un ulteriore MyMultiset, il totale, contiene la somma di tutti i segmenti, così che
+ * count, size e contains costino O(1). Quando il tempo supera la fine del segmento corrente si
+ * passa al successivo, e le occorrenze del segmento che esce dalla finestra vengono tolte dal
+ * totale: la scadenza costa quanto il numero di elementi distinti del segmento scaduto, e se è
+ * passata più di una finestra intera tutti i segmenti vengono azzerati in O(segmenti).
+ * add non crea oggetti, salvo quando una tabella deve crescere.
+ *
+ * La scadenza avviene all'inizio di ogni operazione, quindi elementSet() e l'iteratore
+ * riflettono la finestra al momento della chiamata. decayedCount fornisce inoltre un conteggio
+ * con decadimento esponenziale, in cui ogni segmento pesa meno del successivo.
+ *
+ * @param <E> il tipo degli elementi del multiset
+ */
+public class WindowedMultiset<E> implements Multiset<E> {
+
+    // Attributi della classe
+
+    // Segmenti della finestra, in un array circolare; segmenti[segmentoCorrente] è il più recente.
+    private final MyMultiset<E>[] segmenti;
+    // Somma delle occorrenze di tutti i segmenti.
+    private final MyMultiset<E> totale;
+    // Durata di ogni segmento, nell'unità di misura dell'orologio.
+    private final long durataSegmento;
+    // Orologio che fornisce il tempo corrente.
+    private final LongSupplier orologio;
+    // Indice del segmento corrente e istante in cui è iniziato.
+    private int segmentoCorrente;
+    private long inizioSegmentoCorrente;
+
+    /**
+     * Crea un multiset vuoto la cui finestra è formata dal numero di segmenti
+     * dato, ognuno della durata data in millisecondi. La finestra dura quindi
+     * {@code buckets * bucketMillis} millisecondi.
+     *
+     * @param buckets
+     *                         il numero di segmenti
+     * @param bucketMillis
+     *                         la durata di ogni segmento, in millisecondi
+     * @throws IllegalArgumentException
+     *                                      se il numero di segmenti o la durata
+     *                                      non sono positivi
+     */
+    public WindowedMultiset(int buckets, long bucketMillis) {
+        this(buckets, bucketMillis, () -> System.nanoTime() / 1000000);
+    }
+
+    /**
+     * Crea un multiset vuoto la cui finestra è formata dal numero di segmenti
+     * dato, misurando il tempo con l'orologio dato. L'orologio non deve
+     * tornare indietro.
+     *
+     * @param buckets
+     *                           il numero di segmenti
+     * @param bucketDuration
+     *                           la durata di ogni segmento, nell'unità di
+     *                           misura dell'orologio
+     * @param clock
+     *                           l'orologio che fornisce il tempo corrente
+     * @throws IllegalArgumentException
+     *                                      se il numero di segmenti o la durata
+     *                                      non sono positivi
+     * @throws NullPointerException
+     *                                      se l'orologio è null
+     */
+    public WindowedMultiset(int buckets, long bucketDuration, LongSupplier clock) {
+        if (buckets <= 0)
+            throw new IllegalArgumentException("Il numero di segmenti deve essere maggiore di 0");
+        if (bucketDuration <= 0)
+            throw new IllegalArgumentException("La durata dei segmenti deve essere maggiore di 0");
+        if (clock == null)
+            throw new NullPointerException("L'orologio non può essere nullo");
+
+        // L'array contiene solo MyMultiset<E> creati qui sotto, quindi il cast è sicuro
+        @SuppressWarnings("unchecked")
+        MyMultiset<E>[] nuoviSegmenti = (MyMultiset<E>[]) new MyMultiset<?>[buckets];
+        this.segmenti = nuoviSegmenti;
+        for (int i = 0; i < buckets; i++)
+            segmenti[i] = new MyMultiset<>();
+        this.totale = new MyMultiset<>();
+        this.durataSegmento = bucketDuration;
+        this.orologio = clock;
+        this.segmentoCorrente = 0;
+        this.inizioSegmentoCorrente = clock.getAsLong();
+    }
+
+    /**
+     * Restituisce il numero totale di occorrenze nella finestra corrente.
+     *
+     * @return il numero di occorrenze nella finestra
+     */
+    @Override
+    public int size() {
+        avanza();
+        return totale.size();
+    }
+
+    /**
+     * Restituisce il numero di occorrenze di un elemento nella finestra
+     * corrente.
+     *
+     * @param element
+     *                    l'elemento di cui contare le occorrenze
+     * @return il numero di occorrenze dell'elemento nella finestra
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public int count(Object element) {
+        avanza();
+        return totale.count(element);
+    }
+
+    /**
+     * Aggiunge un numero di occorrenze di un elemento nel segmento corrente.
+     *
+     * @param element
+     *                        l'elemento di cui aggiungere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze da aggiungere, anche zero
+     * @return il numero di occorrenze dell'elemento nella finestra prima
+     *         dell'operazione
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo, o
+     *                                      se la finestra conterrebbe più di
+     *                                      {@code Integer.MAX_VALUE} occorrenze
+     *                                      dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int add(E element, int occurrences) {
+        avanza();
+        // Il totale controlla i parametri; il segmento ha al più le occorrenze del totale
+        int occorrenzePrecedenti = totale.add(element, occurrences);
+        segmenti[segmentoCorrente].add(element, occurrences);
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Aggiunge una singola occorrenza di un elemento nel segmento corrente.
+     *
+     * @param element
+     *                    l'elemento di cui aggiungere l'occorrenza
+     * @throws IllegalArgumentException
+     *                                      se la finestra conterrebbe più di
+     *                                      {@code Integer.MAX_VALUE} occorrenze
+     *                                      dell'elemento
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public void add(E element) {
+        add(element, 1);
+    }
+
+    /**
+     * Rimuove dalla finestra un dato numero di occorrenze di un elemento,
+     * partendo dai segmenti più vecchi. Se la finestra contiene meno
+     * occorrenze, tutte le occorrenze verranno rimosse.
+     *
+     * @param element
+     *                        l'elemento di cui rimuovere le occorrenze
+     * @param occurrences
+     *                        il numero di occorrenze da rimuovere, anche zero
+     * @return il numero di occorrenze dell'elemento nella finestra prima
+     *         dell'operazione
+     * @throws IllegalArgumentException
+     *                                      se {@code occurrences} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int remove(Object element, int occurrences) {
+        avanza();
+        int occorrenzePrecedenti = totale.remove(element, occurrences);
+
+        int daRimuovere = Math.min(occorrenzePrecedenti, occurrences);
+        for (int i = 1; i <= segmenti.length && daRimuovere > 0; i++) {
+            // Il segmento più vecchio è quello che segue il corrente nell'array circolare
+            MyMultiset<E> segmento = segmenti[(segmentoCorrente + i) % segmenti.length];
+            daRimuovere -= Math.min(daRimuovere, segmento.remove(element, daRimuovere));
+        }
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Rimuove dalla finestra una singola occorrenza di un elemento, se
+     * presente.
+     *
+     * @param element
+     *                    l'elemento di cui rimuovere l'occorrenza
+     * @return {@code true} se una occorrenza è stata rimossa
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean remove(Object element) {
+        return remove(element, 1) > 0;
+    }
+
+    /**
+     * Porta le occorrenze di un elemento nella finestra al valore dato,
+     * aggiungendole nel segmento corrente o togliendole dai segmenti più
+     * vecchi.
+     *
+     * @param element
+     *                    l'elemento
+     * @param count
+     *                    il numero di occorrenze da raggiungere
+     * @return il numero di occorrenze dell'elemento nella finestra prima
+     *         dell'operazione
+     * @throws IllegalArgumentException
+     *                                      se {@code count} è negativo
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     */
+    @Override
+    public int setCount(E element, int count) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (count < 0)
+            throw new IllegalArgumentException("Il numero di occorrenze non può essere minore di 0");
+
+        int occorrenzePrecedenti = count(element);
+        if (count > occorrenzePrecedenti)
+            add(element, count - occorrenzePrecedenti);
+        else if (count < occorrenzePrecedenti)
+            remove(element, occorrenzePrecedenti - count);
+        return occorrenzePrecedenti;
+    }
+
+    /**
+     * Restituisce una vista non modificabile degli elementi distinti presenti
+     * nella finestra al momento della chiamata.
+     *
+     * @return l'insieme di elementi distinti nella finestra
+     */
+    @Override
+    public Set<E> elementSet() {
+        avanza();
+        return totale.elementSet();
+    }
+
+    /**
+     * Restituisce un iteratore fail-fast sulle occorrenze presenti nella
+     * finestra al momento della chiamata. Il passaggio al segmento successivo
+     * durante l'iterazione è una modifica del multinsieme.
+     *
+     * @return un iteratore per questo multinsieme
+     */
+    @Override
+    public Iterator<E> iterator() {
+        avanza();
+        return totale.iterator();
+    }
+
+    /**
+     * Determina se l'elemento ha almeno una occorrenza nella finestra.
+     *
+     * @param element
+     *                    l'elemento da cercare
+     * @return {@code true} se l'elemento è presente nella finestra
+     * @throws NullPointerException
+     *                                  se {@code element} è null
+     */
+    @Override
+    public boolean contains(Object element) {
+        avanza();
+        return totale.contains(element);
+    }
+
+    /**
+     * Rimuove tutte le occorrenze da tutti i segmenti.
+     */
+    @Override
+    public void clear() {
+        for (MyMultiset<E> segmento : segmenti)
+            segmento.clear();
+        totale.clear();
+    }
+
+    /**
+     * Determina se la finestra è vuota.
+     *
+     * @return {@code true} se la finestra non contiene occorrenze
+     */
+    @Override
+    public boolean isEmpty() {
+        avanza();
+        return totale.isEmpty();
+    }
+
+    /**
+     * Restituisce le occorrenze di un elemento nella finestra pesate con
+     * decadimento esponenziale: le occorrenze del segmento corrente pesano 1,
+     * quelle del segmento precedente {@code decay}, quelle del segmento ancora
+     * precedente {@code decay * decay} e così via. Costa O(segmenti).
+     *
+     * @param element
+     *                    l'elemento
+     * @param decay
+     *                    il fattore di decadimento, compreso tra 0 (escluso) e
+     *                    1 (incluso); con 1 si ottiene count(element)
+     * @return il conteggio pesato
+     * @throws NullPointerException
+     *                                      se {@code element} è null
+     * @throws IllegalArgumentException
+     *                                      se il fattore di decadimento non è
+     *                                      valido
+     */
+    public double decayedCount(Object element, double decay) {
+        if (element == null)
+            throw new NullPointerException("L'elemento non può essere nullo");
+        if (!(decay > 0 && decay <= 1))
+            throw new IllegalArgumentException("Il fattore di decadimento deve essere compreso tra 0 e 1");
+
+        avanza();
+        double toReturn = 0;
+        double peso = 1;
+        for (int i = 0; i < segmenti.length; i++) {
+            int indice = (segmentoCorrente - i + segmenti.length) % segmenti.length;
+            toReturn += peso * segmenti[indice].count(element);
+            peso *= decay;
+        }
+        return toReturn;
+    }
+
+    // Porta la finestra al tempo corrente, facendo scadere i segmenti usciti dalla finestra.
+    private void avanza() {
+        long passi = (orologio.getAsLong() - inizioSegmentoCorrente) / durataSegmento;
+        if (passi <= 0)
+            return;
+
+        if (passi >= segmenti.length) {
+            // È passata almeno una finestra intera: tutti i segmenti sono scaduti
+            clear();
+            segmentoCorrente = 0;
+        } else
+            for (long i = 0; i < passi; i++) {
+                segmentoCorrente = (segmentoCorrente + 1) % segmenti.length;
+                MyMultiset<E> scaduto = segmenti[segmentoCorrente];
+                totale.removeAll(scaduto);
+                scaduto.clear();
+            }
+        inizioSegmentoCorrente += passi * durataSegmento;
+    }
+}
@@ -0,0 +1,632 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Classe che implementa un grafo non orientato tramite liste di adiacenza,
+ * adatta ai grafi sparsi per i quali la matrice di adiacenza di
+ * {@link AdjacencyMatrixUndirectedGraph} occuperebbe O(V²) memoria. Non sono
+ * accettate etichette dei nodi null e non sono accettate etichette duplicate
+ * nei nodi (che in quel caso sono lo stesso nodo).
+ * <p>
+ * I nodi sono indicizzati da 0 a nodeCount() - 1 seguendo l'ordine del loro
+ * inserimento. Per ogni nodo i la lista di adiacenza è un array di interi
+ * <code>adjacent[i]</code>, di cui sono usate le prime
+ * <code>degree[i]</code> posizioni, che contiene gli indici dei nodi
+ * adiacenti; l'array raddoppia quando si riempie. Un arco (i, j) con i != j
+ * compare nella lista di i e in quella di j, un cappio (i, i) compare una
+ * sola volta nella lista di i. I pesi sono memorizzati in array paralleli,
+ * allocati solo al primo inserimento di un arco pesato.
+ * <p>
+ * Gli oggetti <code>GraphEdge<L></code> sono creati su richiesta. La ricerca
+ * di un arco costa O(min(grado(i), grado(j))), la scansione dei vicini o
+ * degli archi di un nodo O(grado) e {@link #getEdges()} O(V + E). La
+ * cancellazione di un nodo costa O(V + E), dovendo decrementare gli indici
+ * dei nodi successivi.
+ * <p>
+ * Il metodo {@link #freeze()} produce una copia immutabile del grafo nella
+ * forma compatta {@link CompressedSparseRowUndirectedGraph}.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public class AdjacencyListUndirectedGraph<L> extends Graph<L> {
+
+    /*
+     * Capacità iniziale, in numero di nodi, degli array delle liste.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Lunghezza della lista di adiacenza al suo primo inserimento.
+     */
+    private static final int INITIAL_DEGREE = 4;
+
+    private static final int[] NO_ADJACENT = new int[0];
+
+    private static final double[] NO_WEIGHTS = new double[0];
+
+    /*
+     * Le seguenti variabili istanza sono protected al solo scopo di agevolare
+     * il JUnit testing
+     */
+
+    /*
+     * Insieme dei nodi e associazione di ogni nodo con il proprio indice
+     */
+    protected Map<GraphNode<L>, Integer> nodesIndex;
+
+    /*
+     * Nodi del grafo, in posizione i si trova il nodo di indice i.
+     */
+    protected List<GraphNode<L>> nodes;
+
+    /*
+     * adjacent[i] contiene, nelle prime degree[i] posizioni, gli indici dei
+     * nodi adiacenti al nodo i.
+     */
+    protected int[][] adjacent;
+
+    /*
+     * weights[i][k] è il peso dell'arco tra i e adjacent[i][k], Double.NaN se
+     * l'arco non è pesato. È null finché non viene inserito un arco pesato.
+     */
+    protected double[][] weights;
+
+    /*
+     * Numero di posizioni usate in ogni lista di adiacenza.
+     */
+    protected int[] degree;
+
+    /*
+     * Numero di archi presenti.
+     */
+    protected int edges;
+
+    /**
+     * Crea un grafo vuoto.
+     */
+    public AdjacencyListUndirectedGraph() {
+        clear();
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return edges;
+    }
+
+    @Override
+    public void clear() {
+        this.nodesIndex = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.adjacent = new int[INITIAL_CAPACITY][];
+        this.weights = null;
+        this.degree = new int[INITIAL_CAPACITY];
+        this.edges = 0;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    /*
+     * Gli indici dei nodi vanno assegnati nell'ordine d'inserimento a partire
+     * da zero
+     */
+    @Override
+    public boolean addNode(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (nodesIndex.containsKey(node)) return false;
+
+        int n = nodeCount();
+        if (n == degree.length) {
+            adjacent = Arrays.copyOf(adjacent, n * 2);
+            degree = Arrays.copyOf(degree, n * 2);
+            if (weights != null)
+                weights = Arrays.copyOf(weights, n * 2);
+        }
+        adjacent[n] = NO_ADJACENT;
+        degree[n] = 0;
+        if (weights != null)
+            weights[n] = NO_WEIGHTS;
+
+        nodesIndex.put(node, n);
+        nodes.add(node);
+        return true;
+    }
+
+    /*
+     * Gli indici dei nodi vanno assegnati nell'ordine d'inserimento a partire
+     * da zero
+     */
+    @Override
+    public boolean addNode(L label) {
+        return addNode(new GraphNode<>(label));
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Nodo nullo.");
+        Integer index = nodesIndex.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Nodo non presente nel grafo.");
+        removeNode((int) index);
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(L label) {
+        removeNode(new GraphNode<>(label));
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(int i) {
+        checkIndex(i);
+        int n = nodeCount();
+
+        // Tolgo i dalle liste dei suoi vicini, un cappio compare una volta sola
+        for (int k = 0; k < degree[i]; k++) {
+            int j = adjacent[i][k];
+            if (j != i)
+                removeAt(j, positionOf(j, i));
+        }
+        edges -= degree[i];
+
+        System.arraycopy(adjacent, i + 1, adjacent, i, n - i - 1);
+        System.arraycopy(degree, i + 1, degree, i, n - i - 1);
+        adjacent[n - 1] = null;
+        degree[n - 1] = 0;
+        if (weights != null) {
+            System.arraycopy(weights, i + 1, weights, i, n - i - 1);
+            weights[n - 1] = null;
+        }
+
+        for (int v = 0; v < n - 1; v++)
+            for (int k = 0; k < degree[v]; k++)
+                if (adjacent[v][k] > i)
+                    adjacent[v][k]--;
+
+        nodesIndex.remove(nodes.remove(i));
+        for (int k = i; k < nodes.size(); k++)
+            nodesIndex.put(nodes.get(k), k);
+    }
+
+    @Override
+    public GraphNode<L> getNode(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        return index == null ? null : nodes.get(index);
+    }
+
+    @Override
+    public GraphNode<L> getNode(L label) {
+        return getNode(new GraphNode<>(label));
+    }
+
+    @Override
+    public GraphNode<L> getNode(int i) {
+        checkIndex(i);
+        return nodes.get(i);
+    }
+
+    @Override
+    public int getNodeIndexOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Nodo non appartenente al grafo.");
+        return index;
+    }
+
+    @Override
+    public int getNodeIndexOf(L label) {
+        return getNodeIndexOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getNodes() {
+        return nodesIndex.keySet();
+    }
+
+    @Override
+    public boolean addEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            throw new IllegalArgumentException("L' arco incompatibile con il grafo.");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("L'arco non appartenente al grafo.");
+
+        return put(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()),
+                edge.getWeight());
+    }
+
+    @Override
+    public boolean addEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        return addEdge(new GraphEdge<>(node1, node2, false));
+    }
+
+    @Override
+    public boolean addEdge(L label1, L label2) {
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false));
+    }
+
+    @Override
+    public boolean addEdge(int i, int j) {
+        return addWeightedEdge(i, j, Double.NaN);
+    }
+
+    @Override
+    public boolean addWeightedEdge(L label1, L label2, double weight) {
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false, weight));
+    }
+
+    @Override
+    public boolean addWeightedEdge(GraphNode<L> node1, GraphNode<L> node2,
+                                   double weight) {
+        return addEdge(new GraphEdge<>(node1, node2, false, weight));
+    }
+
+    @Override
+    public boolean addWeightedEdge(int i, int j, double weight) {
+        checkIndex(i);
+        checkIndex(j);
+        return put(i, j, weight);
+    }
+
+    @Override
+    public void removeEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            throw new IllegalArgumentException("L' arco incompatibile con il grafo.");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("Arco passato non appartenente al grafo.");
+
+        if (!delete(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2())))
+            throw new IllegalArgumentException("Arco passato non appartenente al grafo.");
+    }
+
+    @Override
+    public void removeEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        removeEdge(new GraphEdge<>(node1, node2, false));
+    }
+
+    @Override
+    public void removeEdge(L label1, L label2) {
+        removeEdge(new GraphNode<>(label1), new GraphNode<>(label2));
+    }
+
+    @Override
+    public void removeEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        delete(i, j);
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            return null;
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("Arco inesistente nel grafo.");
+
+        return edgeAt(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node1) || !nodesIndex.containsKey(node2))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return edgeAt(nodesIndex.get(node1), nodesIndex.get(node2));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(L label1, L label2) {
+        return getEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return edgeAt(i, j);
+    }
+
+    /**
+     * Restituisce il numero di posizioni occupate nella lista di adiacenza del
+     * nodo di indice i, cioè il suo grado (un cappio conta una volta).
+     *
+     * @param i
+     *              indice del nodo
+     * @return il grado del nodo
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non corrisponde a un
+     *                                       nodo
+     */
+    public int degree(int i) {
+        checkIndex(i);
+        return degree[i];
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getAdjacentNodesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(L label) {
+        return getAdjacentNodesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphNode<L>> toReturn = new HashSet<>();
+        for (int k = 0; k < degree[i]; k++)
+            toReturn.add(nodes.get(adjacent[i][k]));
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("node non può essere nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getEdgesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(L label) {
+        return getEdgesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphEdge<L>> toReturn = new HashSet<>();
+        for (int k = 0; k < degree[i]; k++)
+            toReturn.add(newEdge(i, k));
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    /*
+     * Ogni arco compare nelle liste di entrambi i nodi, per cui viene
+     * restituito solo dalla lista del nodo con indice minore.
+     */
+    @Override
+    public Set<GraphEdge<L>> getEdges() {
+        Set<GraphEdge<L>> toReturn = new HashSet<>(Math.max(16, (int) (edges / .75f) + 1));
+
+        for (int i = 0; i < nodeCount(); i++)
+            for (int k = 0; k < degree[i]; k++)
+                if (adjacent[i][k] >= i)
+                    toReturn.add(newEdge(i, k));
+        return toReturn;
+    }
+
+    /**
+     * Crea una copia immutabile del grafo in forma Compressed Sparse Row. La
+     * copia condivide gli oggetti nodo con questo grafo e ne mantiene gli
+     * indici; le successive modifiche di questo grafo non si riflettono sulla
+     * copia.
+     *
+     * @return la copia immutabile del grafo
+     */
+    public CompressedSparseRowUndirectedGraph<L> freeze() {
+        int n = nodeCount();
+        int pairs = 0;
+        for (int i = 0; i < n; i++)
+            pairs += degree[i];
+
+        int[] sources = new int[pairs];
+        int[] targets = new int[pairs];
+        double[] pairWeights = weights == null ? null : new double[pairs];
+        int p = 0;
+        for (int i = 0; i < n; i++)
+            for (int k = 0; k < degree[i]; k++) {
+                sources[p] = i;
+                targets[p] = adjacent[i][k];
+                if (pairWeights != null)
+                    pairWeights[p] = weights[i][k];
+                p++;
+            }
+
+        return new CompressedSparseRowUndirectedGraph<>(nodes, sources, targets,
+                pairWeights, edges);
+    }
+
+    /*
+     * Inserisce l'arco (i, j) con il peso dato, se non è già presente.
+     */
+    private boolean put(int i, int j, double weight) {
+        if (find(i, j) >= 0)
+            return false;
+
+        if (!Double.isNaN(weight) && weights == null)
+            allocateWeights();
+        append(i, j, weight);
+        if (i != j)
+            append(j, i, weight);
+        edges++;
+        return true;
+    }
+
+    /*
+     * Rimuove l'arco (i, j), restituisce false se non era presente.
+     */
+    private boolean delete(int i, int j) {
+        int k = positionOf(i, j);
+        if (k < 0)
+            return false;
+
+        removeAt(i, k);
+        if (i != j)
+            removeAt(j, positionOf(j, i));
+        edges--;
+        return true;
+    }
+
+    /*
+     * Crea l'oggetto arco tra i nodi di indice i e j, null se non presente.
+     * La ricerca avviene nella lista più corta dei due nodi.
+     */
+    private GraphEdge<L> edgeAt(int i, int j) {
+        if (degree[i] <= degree[j]) {
+            int k = positionOf(i, j);
+            return k < 0 ? null : newEdge(i, k);
+        }
+        int k = positionOf(j, i);
+        return k < 0 ? null : newEdge(j, k);
+    }
+
+    /*
+     * Posizione dell'arco (i, j) nella lista più corta dei due nodi, -1 se
+     * non presente.
+     */
+    private int find(int i, int j) {
+        return degree[i] <= degree[j] ? positionOf(i, j) : positionOf(j, i);
+    }
+
+    /*
+     * Posizione di j nella lista di adiacenza di i, -1 se non presente.
+     */
+    private int positionOf(int i, int j) {
+        int[] row = adjacent[i];
+        for (int k = 0; k < degree[i]; k++)
+            if (row[k] == j)
+                return k;
+        return -1;
+    }
+
+    private void append(int i, int j, double weight) {
+        int d = degree[i];
+        if (d == adjacent[i].length) {
+            int length = d == 0 ? INITIAL_DEGREE : d * 2;
+            adjacent[i] = Arrays.copyOf(adjacent[i], length);
+            if (weights != null)
+                weights[i] = growWeights(weights[i], length);
+        }
+        adjacent[i][d] = j;
+        if (weights != null)
+            weights[i][d] = weight;
+        degree[i] = d + 1;
+    }
+
+    /*
+     * Rimuove la posizione k dalla lista di i spostandovi l'ultima.
+     */
+    private void removeAt(int i, int k) {
+        int last = --degree[i];
+        adjacent[i][k] = adjacent[i][last];
+        if (weights != null)
+            weights[i][k] = weights[i][last];
+    }
+
+    private GraphEdge<L> newEdge(int i, int k) {
+        double weight = weights == null ? Double.NaN : weights[i][k];
+        return new GraphEdge<>(nodes.get(i), nodes.get(adjacent[i][k]), false, weight);
+    }
+
+    private void allocateWeights() {
+        weights = new double[adjacent.length][];
+        for (int i = 0; i < nodeCount(); i++)
+            weights[i] = growWeights(NO_WEIGHTS, adjacent[i].length);
+    }
+
+    private static double[] growWeights(double[] row, int length) {
+        int oldLength = row.length;
+        double[] grown = Arrays.copyOf(row, length);
+        Arrays.fill(grown, oldLength, length, Double.NaN);
+        return grown;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0)
+            throw new IndexOutOfBoundsException("Valore minore di 0.");
+        if (i >= nodeCount())
+            throw new IndexOutOfBoundsException("Valore maggiore " + (nodeCount() - 1) + ".");
+    }
+}
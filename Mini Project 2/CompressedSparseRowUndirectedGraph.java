@@ -0,0 +1,517 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Grafo non orientato immutabile in forma Compressed Sparse Row (CSR). Le
+ * liste di adiacenza di tutti i nodi sono concatenate in un unico array
+ * <code>targets</code>: i vicini del nodo i occupano le posizioni da
+ * <code>offsets[i]</code> (incluso) a <code>offsets[i + 1]</code> (escluso),
+ * in ordine crescente d'indice. I pesi, se presenti, sono nell'array
+ * parallelo <code>weights</code> con <code>Double.NaN</code> per gli archi non
+ * pesati.
+ * <p>
+ * Rispetto a {@link AdjacencyListUndirectedGraph} la forma CSR non ha array
+ * per nodo né spazio libero in coda alle liste, e la ricerca di un arco è
+ * una ricerca binaria nella lista più corta dei due nodi. La scansione dei
+ * vicini di un nodo costa O(grado) e {@link #getEdges()} O(V + E).
+ * <p>
+ * Si ottiene con {@link AdjacencyListUndirectedGraph#freeze()} o copiando un
+ * qualsiasi grafo non orientato con il costruttore; in entrambi i casi gli
+ * oggetti nodo sono condivisi con il grafo di partenza (gli algoritmi ne
+ * possono quindi modificare colore, distanza e predecessore) e gli indici dei
+ * nodi sono mantenuti. Tutte le operazioni di modifica del grafo lanciano
+ * <code>UnsupportedOperationException</code>.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public class CompressedSparseRowUndirectedGraph<L> extends Graph<L> {
+
+    /*
+     * Le seguenti variabili istanza sono protected al solo scopo di agevolare
+     * il JUnit testing
+     */
+
+    /*
+     * Insieme dei nodi e associazione di ogni nodo con il proprio indice
+     */
+    protected final Map<GraphNode<L>, Integer> nodesIndex;
+
+    /*
+     * Nodi del grafo, in posizione i si trova il nodo di indice i.
+     */
+    protected final List<GraphNode<L>> nodes;
+
+    /*
+     * I vicini del nodo i sono in targets[offsets[i]] ...
+     * targets[offsets[i + 1] - 1].
+     */
+    protected final int[] offsets;
+
+    protected final int[] targets;
+
+    /*
+     * Pesi paralleli a targets, null se il grafo non ha archi pesati.
+     */
+    protected final double[] weights;
+
+    /*
+     * Numero di archi, un arco (i, j) con i != j occupa due posizioni di
+     * targets.
+     */
+    protected final int edges;
+
+    /**
+     * Crea una copia immutabile in forma CSR del grafo non orientato dato.
+     *
+     * @param g
+     *              il grafo da copiare
+     * @throws NullPointerException
+     *                                      se il grafo è nullo
+     * @throws IllegalArgumentException
+     *                                      se il grafo è orientato
+     */
+    public CompressedSparseRowUndirectedGraph(Graph<L> g) {
+        if (g == null)
+            throw new NullPointerException("Grafo nullo.");
+        if (g.isDirected())
+            throw new IllegalArgumentException("Grafo orientato.");
+
+        int n = g.nodeCount();
+        List<GraphNode<L>> ordered = new ArrayList<>(Collections.<GraphNode<L>>nCopies(n, null));
+        Map<GraphNode<L>, Integer> index = new HashMap<>();
+        for (GraphNode<L> element : g.getNodes()) {
+            int i = g.getNodeIndexOf(element);
+            ordered.set(i, element);
+            index.put(element, i);
+        }
+
+        Set<GraphEdge<L>> graphEdges = g.getEdges();
+        int[] sources = new int[2 * graphEdges.size()];
+        int[] pairTargets = new int[sources.length];
+        double[] pairWeights = new double[sources.length];
+        boolean weighted = false;
+        int pairs = 0;
+        for (GraphEdge<L> element : graphEdges) {
+            int i = index.get(element.getNode1());
+            int j = index.get(element.getNode2());
+            double weight = element.getWeight();
+            weighted |= !Double.isNaN(weight);
+            sources[pairs] = i;
+            pairTargets[pairs] = j;
+            pairWeights[pairs++] = weight;
+            if (i != j) {
+                sources[pairs] = j;
+                pairTargets[pairs] = i;
+                pairWeights[pairs++] = weight;
+            }
+        }
+
+        this.nodes = ordered;
+        this.nodesIndex = index;
+        this.edges = graphEdges.size();
+        this.offsets = new int[n + 1];
+        this.targets = new int[pairs];
+        this.weights = weighted ? new double[pairs] : null;
+        fill(Arrays.copyOf(sources, pairs), Arrays.copyOf(pairTargets, pairs),
+                weighted ? pairWeights : null);
+    }
+
+    /*
+     * Costruisce la forma CSR a partire dalle coppie (sources[p], targets[p])
+     * che rappresentano gli archi in entrambe le direzioni (i cappi una volta
+     * sola). Usato da AdjacencyListUndirectedGraph.freeze().
+     */
+    CompressedSparseRowUndirectedGraph(List<GraphNode<L>> nodes, int[] sources,
+                                       int[] pairTargets, double[] pairWeights,
+                                       int edges) {
+        int n = nodes.size();
+        this.nodes = new ArrayList<>(nodes);
+        this.nodesIndex = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            this.nodesIndex.put(this.nodes.get(i), i);
+        this.edges = edges;
+        this.offsets = new int[n + 1];
+        this.targets = new int[sources.length];
+        this.weights = pairWeights == null ? null : new double[sources.length];
+        fill(sources, pairTargets, pairWeights);
+    }
+
+    /*
+     * Due passate di counting sort: la prima ordina le coppie per nodo di
+     * arrivo, la seconda, stabile, le distribuisce nelle righe dei nodi di
+     * partenza, che risultano quindi ordinate. Costo O(V + E).
+     */
+    private void fill(int[] sources, int[] pairTargets, double[] pairWeights) {
+        int n = nodes.size();
+
+        int[] start = new int[n + 1];
+        for (int target : pairTargets)
+            start[target + 1]++;
+        for (int i = 0; i < n; i++)
+            start[i + 1] += start[i];
+        int[] byTarget = new int[pairTargets.length];
+        for (int p = 0; p < pairTargets.length; p++)
+            byTarget[start[pairTargets[p]]++] = p;
+
+        for (int source : sources)
+            offsets[source + 1]++;
+        for (int i = 0; i < n; i++)
+            offsets[i + 1] += offsets[i];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int p : byTarget) {
+            int position = next[sources[p]]++;
+            targets[position] = pairTargets[p];
+            if (weights != null)
+                weights[position] = pairWeights[p];
+        }
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return edges;
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    public boolean addNode(GraphNode<L> node) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addNode(L label) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeNode(GraphNode<L> node) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeNode(L label) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeNode(int i) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public GraphNode<L> getNode(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        return index == null ? null : nodes.get(index);
+    }
+
+    @Override
+    public GraphNode<L> getNode(L label) {
+        return getNode(new GraphNode<>(label));
+    }
+
+    @Override
+    public GraphNode<L> getNode(int i) {
+        checkIndex(i);
+        return nodes.get(i);
+    }
+
+    @Override
+    public int getNodeIndexOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Nodo non appartenente al grafo.");
+        return index;
+    }
+
+    @Override
+    public int getNodeIndexOf(L label) {
+        return getNodeIndexOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getNodes() {
+        return Collections.unmodifiableSet(nodesIndex.keySet());
+    }
+
+    @Override
+    public boolean addEdge(GraphEdge<L> edge) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addEdge(L label1, L label2) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addEdge(int i, int j) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addWeightedEdge(L label1, L label2, double weight) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addWeightedEdge(GraphNode<L> node1, GraphNode<L> node2,
+                                   double weight) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public boolean addWeightedEdge(int i, int j, double weight) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeEdge(GraphEdge<L> edge) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeEdge(L label1, L label2) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public void removeEdge(int i, int j) {
+        throw new UnsupportedOperationException("Grafo immutabile.");
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            return null;
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("Arco inesistente nel grafo.");
+
+        return edgeAt(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node1) || !nodesIndex.containsKey(node2))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return edgeAt(nodesIndex.get(node1), nodesIndex.get(node2));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(L label1, L label2) {
+        return getEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return edgeAt(i, j);
+    }
+
+    /**
+     * Restituisce il grado del nodo di indice i (un cappio conta una volta).
+     *
+     * @param i
+     *              indice del nodo
+     * @return il grado del nodo
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non corrisponde a un
+     *                                       nodo
+     */
+    public int degree(int i) {
+        checkIndex(i);
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Restituisce l'indice del k-esimo vicino, in ordine crescente d'indice,
+     * del nodo di indice i. Insieme a {@link #degree(int)} permette di
+     * scorrere i vicini di un nodo senza creare alcun oggetto.
+     *
+     * @param i
+     *              indice del nodo
+     * @param k
+     *              posizione del vicino, da 0 a degree(i) - 1
+     * @return l'indice del k-esimo vicino
+     * @throws IndexOutOfBoundsException
+     *                                       se i non corrisponde a un nodo o
+     *                                       k non è una posizione valida
+     */
+    public int getAdjacentNodeIndex(int i, int k) {
+        checkIndex(i);
+        if (k < 0 || k >= offsets[i + 1] - offsets[i])
+            throw new IndexOutOfBoundsException("Posizione non valida: " + k + ".");
+        return targets[offsets[i] + k];
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getAdjacentNodesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(L label) {
+        return getAdjacentNodesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphNode<L>> toReturn = new HashSet<>();
+        for (int p = offsets[i]; p < offsets[i + 1]; p++)
+            toReturn.add(nodes.get(targets[p]));
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("node non può essere nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getEdgesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(L label) {
+        return getEdgesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphEdge<L>> toReturn = new HashSet<>();
+        for (int p = offsets[i]; p < offsets[i + 1]; p++)
+            toReturn.add(newEdge(i, p));
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    /*
+     * Ogni arco compare nelle righe di entrambi i nodi, per cui viene
+     * restituito solo dalla riga del nodo con indice minore.
+     */
+    @Override
+    public Set<GraphEdge<L>> getEdges() {
+        Set<GraphEdge<L>> toReturn = new HashSet<>(Math.max(16, (int) (edges / .75f) + 1));
+
+        for (int i = 0; i < nodeCount(); i++)
+            for (int p = offsets[i]; p < offsets[i + 1]; p++)
+                if (targets[p] >= i)
+                    toReturn.add(newEdge(i, p));
+        return toReturn;
+    }
+
+    /*
+     * Crea l'oggetto arco tra i nodi di indice i e j, null se non presente.
+     * La ricerca binaria avviene nella riga più corta dei due nodi.
+     */
+    private GraphEdge<L> edgeAt(int i, int j) {
+        if (offsets[i + 1] - offsets[i] > offsets[j + 1] - offsets[j]) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        int p = Arrays.binarySearch(targets, offsets[i], offsets[i + 1], j);
+        return p < 0 ? null : newEdge(i, p);
+    }
+
+    private GraphEdge<L> newEdge(int i, int p) {
+        double weight = weights == null ? Double.NaN : weights[p];
+        return new GraphEdge<>(nodes.get(i), nodes.get(targets[p]), false, weight);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0)
+            throw new IndexOutOfBoundsException("Valore minore di 0.");
+        if (i >= nodeCount())
+            throw new IndexOutOfBoundsException("Valore maggiore " + (nodeCount() - 1) + ".");
+    }
+}
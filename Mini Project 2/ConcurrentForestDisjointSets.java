@@ -0,0 +1,371 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Implementazione thread-safe dell'interfaccia <code>DisjointSets<E></code>
+ * tramite una foresta di alberi senza lock, nello stile di Anderson e Woll
+ * ("Wait-free parallel algorithms for the union-find problem", 1991).
+ * <p>
+ * Come in {@link IntForestDisjointSets} a ogni elemento viene assegnato un
+ * indice intero denso. Il parent e il rango di ogni nodo sono impacchettati in
+ * un'unica parola di un {@link AtomicLongArray} (rango nei 32 bit alti, parent
+ * nei 32 bit bassi), in modo che entrambi possano essere letti e modificati
+ * con una sola compareAndSet.
+ * <ul>
+ * <li>find non usa lock e applica il dimezzamento del cammino tramite CAS: se
+ * una CAS fallisce il cammino semplicemente non viene accorciato;</li>
+ * <li>union collega una radice sotto l'altra con una CAS che ha successo solo
+ * se il nodo è ancora una radice, altrimenti riprova. Le radici sono ordinate
+ * per (rango, indice), e una radice viene sempre collegata sotto una radice
+ * maggiore in quest'ordine: così due unioni concorrenti non possono mai
+ * formare un ciclo.</li>
+ * </ul>
+ * Le operazioni {@link #union(int, int)} e {@link #sameSet(int, int)} sono
+ * linearizzabili. {@link #getCurrentRepresentatives()} e
+ * {@link #getCurrentElementsOfSetContaining(Object)} sono invece debolmente
+ * consistenti se eseguiti in concorrenza con delle unioni.
+ * <p>
+ * La capacità, cioè il numero massimo di elementi, è fissata alla creazione.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ *
+ * @param <E>
+ *                il tipo degli elementi degli insiemi disgiunti
+ */
+public class ConcurrentForestDisjointSets<E> implements DisjointSets<E> {
+
+    /*
+     * Mappa che associa a ogni elemento inserito il proprio indice. Le
+     * variabili sono protected unicamente per permettere i test JUnit.
+     */
+    protected final ConcurrentMap<E, Integer> ids;
+
+    /*
+     * Elementi inseriti, in posizione i si trova l'elemento di indice i.
+     */
+    protected final AtomicReferenceArray<E> items;
+
+    /*
+     * Parole dei nodi: rango nei 32 bit alti, indice del parent nei 32 bit
+     * bassi. Se il nodo i è una radice allora il suo parent è i.
+     */
+    protected final AtomicLongArray nodes;
+
+    /*
+     * Prossimo indice da assegnare.
+     */
+    protected final AtomicInteger nextId;
+
+    /*
+     * Numero d'indici pubblicati: i nodi e gli elementi di indice minore sono
+     * già stati scritti. Avanza solo in ordine d'indice.
+     */
+    protected final AtomicInteger published;
+
+    /*
+     * Valore associato nella mappa a un elemento il cui inserimento è in
+     * corso, prima che gli venga assegnato un indice.
+     */
+    private static final Integer PENDING = -1;
+
+    /**
+     * Costruisce una foresta vuota d'insiemi disgiunti che può contenere al
+     * massimo un certo numero di elementi.
+     *
+     * @param capacity
+     *                     il numero massimo di elementi
+     * @throws IllegalArgumentException
+     *                                      se capacity è negativa
+     */
+    public ConcurrentForestDisjointSets(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacità negativa.");
+
+        this.ids = new ConcurrentHashMap<>(capacity);
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.nodes = new AtomicLongArray(capacity);
+        this.nextId = new AtomicInteger(0);
+        this.published = new AtomicInteger(0);
+    }
+
+    @Override
+    public boolean isPresent(E e) {
+        if (e == null)
+            throw new NullPointerException("e non può essere nullo.");
+
+        return publishedId(e) != null;
+    }
+
+    /*
+     * L'elemento viene prima riservato nella mappa, così che solo il thread
+     * che lo inserisce per primo consumi un indice. Il nodo e l'elemento
+     * vengono poi scritti e l'indice pubblicato, in ordine: il thread attende
+     * che gli indici precedenti, assegnati ad altri thread, siano pubblicati.
+     * Solo allora l'indice viene associato all'elemento nella mappa, per cui
+     * un indice ottenuto dalla mappa o minore di size() ha sempre un nodo
+     * valido.
+     */
+    @Override
+    public void makeSet(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+        if (ids.putIfAbsent(e, PENDING) != null)
+            throw new IllegalArgumentException("Elemento già presente.");
+
+        int id;
+        do {
+            id = nextId.get();
+            if (id >= nodes.length()) {
+                ids.remove(e, PENDING);
+                throw new IllegalStateException("Capacità esaurita: " + nodes.length() + ".");
+            }
+        } while (!nextId.compareAndSet(id, id + 1));
+
+        nodes.set(id, word(id, 0));
+        items.set(id, e);
+        while (!published.compareAndSet(id, id + 1))
+            Thread.yield();
+        ids.replace(e, PENDING, id);
+    }
+
+    @Override
+    public E findSet(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+
+        Integer id = publishedId(e);
+        if (id == null)
+            return null;
+
+        return items.get(find(id));
+    }
+
+    @Override
+    public void union(E e1, E e2) {
+        if (e1 == null || e2 == null)
+            throw new NullPointerException("Elementi nulli.");
+
+        union(indexOf(e1), indexOf(e2));
+    }
+
+    @Override
+    public Set<E> getCurrentRepresentatives() {
+        //Set di ritorno
+        Set<E> toReturn = new HashSet<>();
+
+        for (int i = 0; i < size(); i++) {
+            E item = items.get(i);
+            if (item != null && parentOf(nodes.get(i)) == i)
+                toReturn.add(item);
+        }
+        return toReturn;
+    }
+
+    @Override
+    public Set<E> getCurrentElementsOfSetContaining(E e) {
+        int id = indexOf(e);
+
+        //Set di ritorno
+        Set<E> toReturn = new HashSet<>();
+
+        for (int i = 0; i < size(); i++) {
+            E item = items.get(i);
+            if (item != null && sameSet(i, id))
+                toReturn.add(item);
+        }
+        return toReturn;
+    }
+
+    /*
+     * Non è thread-safe: non deve essere eseguito in concorrenza con altre
+     * operazioni.
+     */
+    @Override
+    public void clear() {
+        ids.clear();
+        for (int i = 0; i < size(); i++)
+            items.set(i, null);
+        nextId.set(0);
+        published.set(0);
+    }
+
+    /**
+     * Restituisce il numero d'indici assegnati e pubblicati finora. Gli indici
+     * validi vanno da 0 a size() - 1.
+     *
+     * @return il numero d'indici pubblicati
+     */
+    public int size() {
+        return published.get();
+    }
+
+    /**
+     * Restituisce l'indice assegnato a un elemento al momento del suo
+     * inserimento.
+     *
+     * @param e
+     *              l'elemento di cui si vuole l'indice
+     * @return l'indice dell'elemento
+     * @throws NullPointerException
+     *                                      se l'elemento passato è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento passato non è
+     *                                      presente
+     */
+    public int indexOf(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+
+        Integer id = publishedId(e);
+        if (id == null)
+            throw new IllegalArgumentException("Elemento non presente.");
+
+        return id;
+    }
+
+    /**
+     * Restituisce l'indice della radice dell'albero che contiene il nodo di
+     * indice i, dimezzando il cammino percorso. Non usa lock.
+     *
+     * @param i
+     *              l'indice di un elemento
+     * @return l'indice della radice dell'albero che contiene i al momento
+     *         della lettura
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       size() - 1
+     */
+    public int find(int i) {
+        checkIndex(i);
+
+        while (true) {
+            long word = nodes.get(i);
+            int parent = parentOf(word);
+            if (parent == i)
+                return i;
+
+            int grandParent = parentOf(nodes.get(parent));
+            // Dimezzamento del cammino: se la CAS fallisce qualcun altro ha
+            // già modificato il nodo e si prosegue comunque
+            if (grandParent != parent)
+                nodes.compareAndSet(i, word, word(grandParent, rankOf(word)));
+            i = grandParent;
+        }
+    }
+
+    /**
+     * Unisce gli insiemi che contengono i nodi di indice i e j. Può essere
+     * chiamato da più thread contemporaneamente.
+     *
+     * @param i
+     *              l'indice di un elemento del primo insieme
+     * @param j
+     *              l'indice di un elemento del secondo insieme
+     * @return true se i due insiemi erano distinti e sono stati uniti da
+     *         questa chiamata, false se facevano già parte dello stesso
+     *         insieme
+     * @throws IndexOutOfBoundsException
+     *                                       se uno dei due indici non è
+     *                                       compreso tra 0 e size() - 1
+     */
+    public boolean union(int i, int j) {
+        while (true) {
+            int root1 = find(i);
+            int root2 = find(j);
+            if (root1 == root2)
+                return false;
+
+            long word1 = nodes.get(root1);
+            long word2 = nodes.get(root2);
+            // Una delle due radici è stata collegata nel frattempo: riprovo
+            if (parentOf(word1) != root1 || parentOf(word2) != root2)
+                continue;
+
+            int rank1 = rankOf(word1);
+            int rank2 = rankOf(word2);
+
+            // La radice minore in ordine (rango, indice) diventa figlia
+            int child, parent;
+            long childWord, parentWord;
+            if (rank1 < rank2 || (rank1 == rank2 && root1 < root2)) {
+                child = root1; childWord = word1;
+                parent = root2; parentWord = word2;
+            } else {
+                child = root2; childWord = word2;
+                parent = root1; parentWord = word1;
+            }
+
+            if (nodes.compareAndSet(child, childWord, word(parent, rankOf(childWord)))) {
+                /*
+                 * A parità di rango si incrementa il rango della nuova radice.
+                 * Se la CAS fallisce la radice è cambiata nel frattempo: il
+                 * rango è solo un'euristica e la correttezza non ne risente.
+                 */
+                if (rank1 == rank2)
+                    nodes.compareAndSet(parent, parentWord,
+                            word(parent, rankOf(parentWord) + 1));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Determina se i nodi di indice i e j fanno parte dello stesso insieme.
+     * Il risultato è linearizzabile anche in presenza di unioni concorrenti.
+     *
+     * @param i
+     *              l'indice del primo elemento
+     * @param j
+     *              l'indice del secondo elemento
+     * @return true se i e j fanno parte dello stesso insieme
+     * @throws IndexOutOfBoundsException
+     *                                       se uno dei due indici non è
+     *                                       compreso tra 0 e size() - 1
+     */
+    public boolean sameSet(int i, int j) {
+        while (true) {
+            int root1 = find(i);
+            int root2 = find(j);
+            if (root1 == root2)
+                return true;
+            // Se root1 è ancora una radice, i due insiemi erano distinti
+            if (parentOf(nodes.get(root1)) == root1)
+                return false;
+        }
+    }
+
+    /*
+     * Restituisce l'indice dell'elemento, o null se non è presente o se il suo
+     * inserimento non è ancora terminato.
+     */
+    private Integer publishedId(E e) {
+        Integer id = ids.get(e);
+        return id == null || id.equals(PENDING) ? null : id;
+    }
+
+    private static long word(int parent, int rank) {
+        return ((long) rank << 32) | (parent & 0xFFFFFFFFL);
+    }
+
+    private static int parentOf(long word) {
+        return (int) word;
+    }
+
+    private static int rankOf(long word) {
+        return (int) (word >>> 32);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Indice non valido: " + i + ".");
+    }
+}
@@ -0,0 +1,171 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Programma di verifica e di misura per {@link ConcurrentForestDisjointSets}.
+ * <p>
+ * La prima fase è uno stress test: più thread eseguono contemporaneamente
+ * union e sameSet su coppie casuali, controllando che dopo ogni propria
+ * union i due elementi risultino nello stesso insieme; al termine la
+ * partizione ottenuta viene confrontata con quella calcolata
+ * sequenzialmente da {@link IntForestDisjointSets} sulle stesse coppie. La
+ * seconda fase misura il throughput delle unioni al variare del numero di
+ * thread, da 1 al numero indicato.
+ * <p>
+ * Uso: <code>ConcurrentForestDisjointSetsBenchmark [thread] [elementi]
+ * [unioni] [ripetizioni]</code>, con valori predefiniti pari al numero di
+ * processori, 200000, 480000 e 5.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public class ConcurrentForestDisjointSetsBenchmark {
+
+    private ConcurrentForestDisjointSetsBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        int elements = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int unions = args.length > 2 ? Integer.parseInt(args[2]) : 480_000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Random random = new Random(42);
+        for (int round = 1; round <= rounds; round++) {
+            int[] pairs = randomPairs(random, elements, unions);
+            stress(threads, elements, pairs);
+            System.out.printf("stress %d/%d: %d thread, %d elementi, %d unioni, ok%n",
+                    round, rounds, threads, elements, unions);
+        }
+
+        int[] pairs = randomPairs(random, elements, unions);
+        // Riscaldamento del JIT, il risultato viene scartato
+        for (int k = 0; k < 3; k++)
+            runUnions(Math.max(1, threads), elements, pairs);
+
+        for (int t = 1; t <= threads; t = t == threads ? t + 1 : Math.min(2 * t, threads)) {
+            long best = Long.MAX_VALUE;
+            for (int k = 0; k < rounds; k++)
+                best = Math.min(best, runUnions(t, elements, pairs));
+            System.out.printf("%2d thread: %8.2f Munioni/s%n", t, unions * 1e3 / best);
+        }
+    }
+
+    /*
+     * Esegue le unioni in concorrenza e confronta la partizione risultante con
+     * quella sequenziale. Lancia IllegalStateException se differiscono.
+     */
+    private static void stress(int threads, int elements, int[] pairs)
+            throws InterruptedException {
+        ConcurrentForestDisjointSets<Integer> concurrent = newSets(elements);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        int unions = pairs.length / 2;
+
+        Thread[] workers = new Thread[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) unions * t / threads);
+            int to = (int) ((long) unions * (t + 1) / threads);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    Random random = new Random(from);
+                    for (int p = from; p < to; p++) {
+                        int i = pairs[2 * p], j = pairs[2 * p + 1];
+                        concurrent.union(i, j);
+                        if (!concurrent.sameSet(i, j))
+                            throw new IllegalStateException(
+                                    "sameSet falso dopo union(" + i + ", " + j + ").");
+                        // Interrogazione su una coppia qualsiasi, in concorrenza
+                        concurrent.sameSet(random.nextInt(elements), random.nextInt(elements));
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        if (failure.get() != null)
+            throw failure.get();
+
+        IntForestDisjointSets<Integer> sequential = new IntForestDisjointSets<>(elements);
+        for (int i = 0; i < elements; i++)
+            sequential.makeSet(i);
+        for (int p = 0; p < unions; p++)
+            sequential.union(pairs[2 * p], pairs[2 * p + 1]);
+
+        // Le due partizioni coincidono se le radici si corrispondono biunivocamente
+        Map<Integer, Integer> concurrentToSequential = new HashMap<>();
+        Map<Integer, Integer> sequentialToConcurrent = new HashMap<>();
+        for (int i = 0; i < elements; i++) {
+            int root1 = concurrent.find(i);
+            int root2 = sequential.find(i);
+            Integer mapped1 = concurrentToSequential.putIfAbsent(root1, root2);
+            Integer mapped2 = sequentialToConcurrent.putIfAbsent(root2, root1);
+            if ((mapped1 != null && mapped1 != root2) || (mapped2 != null && mapped2 != root1))
+                throw new IllegalStateException(
+                        "Partizione diversa da quella sequenziale all'elemento " + i + ".");
+        }
+    }
+
+    /*
+     * Restituisce il tempo in nanosecondi impiegato da un certo numero di
+     * thread per eseguire tutte le unioni, divise in parti uguali.
+     */
+    private static long runUnions(int threads, int elements, int[] pairs)
+            throws InterruptedException {
+        ConcurrentForestDisjointSets<Integer> sets = newSets(elements);
+        int unions = pairs.length / 2;
+
+        Thread[] workers = new Thread[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) unions * t / threads);
+            int to = (int) ((long) unions * (t + 1) / threads);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int p = from; p < to; p++)
+                    sets.union(pairs[2 * p], pairs[2 * p + 1]);
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return System.nanoTime() - begin;
+    }
+
+    private static ConcurrentForestDisjointSets<Integer> newSets(int elements) {
+        ConcurrentForestDisjointSets<Integer> sets = new ConcurrentForestDisjointSets<>(elements);
+        // Gli elementi vengono inseriti in ordine, per cui l'indice di i è i
+        for (int i = 0; i < elements; i++)
+            sets.makeSet(i);
+        return sets;
+    }
+
+    private static int[] randomPairs(Random random, int elements, int unions) {
+        int[] pairs = new int[2 * unions];
+        for (int p = 0; p < pairs.length; p++)
+            pairs[p] = random.nextInt(elements);
+        return pairs;
+    }
+}
@@ -0,0 +1,431 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Classe di utilità che salva lo stato di una collezione d'insiemi disgiunti
+ * in un file binario compatto e lo ricarica senza ripetere le operazioni
+ * makeSet e union.
+ * <p>
+ * Il file contiene, nell'ordine:
+ * <ul>
+ * <li>un'intestazione di 8 byte: il numero magico {@link #MAGIC} e il numero
+ * n di elementi;</li>
+ * <li>l'array <code>int[n] parent</code>, già compresso: ogni elemento punta
+ * direttamente alla radice del proprio albero;</li>
+ * <li>l'array <code>byte[n] rank</code>;</li>
+ * <li>l'array <code>long[n + 1]</code> delle posizioni di ogni elemento nel
+ * dizionario, relative all'inizio del dizionario;</li>
+ * <li>il dizionario, cioè gli elementi codificati uno dopo l'altro da un
+ * {@link ElementCodec}.</li>
+ * </ul>
+ * Entrambi i metodi di caricamento rifiutano i file in cui la foresta non è
+ * compressa, cioè in cui parent[parent[i]] != parent[i] per qualche i, e
+ * quelli in cui le posizioni nel dizionario decrescono o ne superano la fine.
+ * Essendo la foresta salvata già compressa, {@link #map(Path, ElementCodec)}
+ * permette di rispondere alle domande sugli indici leggendo un solo intero dal
+ * file mappato in memoria, senza copiare i dati sullo heap.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public final class DisjointSetsSnapshot {
+
+    /**
+     * Numero magico che identifica i file di questo formato ("DSF1").
+     */
+    public static final int MAGIC = 0x44534631;
+
+    /*
+     * Dimensione in byte dell'intestazione.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Codifica e decodifica degli elementi nel dizionario del file.
+     *
+     * @param <E>
+     *                il tipo degli elementi
+     */
+    public interface ElementCodec<E> {
+
+        /**
+         * Codifica un elemento in una sequenza di byte.
+         *
+         * @param e
+         *              l'elemento da codificare, non nullo
+         * @return la codifica dell'elemento
+         */
+        byte[] encode(E e);
+
+        /**
+         * Decodifica un elemento codificato con {@link #encode(Object)}.
+         *
+         * @param bytes
+         *                  la codifica dell'elemento
+         * @return l'elemento
+         */
+        E decode(byte[] bytes);
+
+        /**
+         * Restituisce un codec per stringhe codificate in UTF-8.
+         *
+         * @return un codec per stringhe
+         */
+        static ElementCodec<String> utf8() {
+            return new ElementCodec<String>() {
+                @Override
+                public byte[] encode(String e) {
+                    return e.getBytes(StandardCharsets.UTF_8);
+                }
+
+                @Override
+                public String decode(byte[] bytes) {
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+        }
+    }
+
+    private DisjointSetsSnapshot() {
+    }
+
+    /**
+     * Salva una foresta di insiemi disgiunti. La foresta viene scritta con
+     * tutti i cammini compressi; gli indici degli elementi vengono
+     * conservati.
+     *
+     * @param sets
+     *                  la foresta da salvare
+     * @param file
+     *                  il file da creare o sovrascrivere
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di scrittura
+     */
+    public static <E> void write(IntForestDisjointSets<E> sets, Path file,
+                                 ElementCodec<? super E> codec) throws IOException {
+        if (sets == null || file == null || codec == null)
+            throw new NullPointerException("Parametri nulli.");
+
+        int n = sets.size();
+        List<E> items = new ArrayList<>(n);
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            items.add(sets.getElement(i));
+            parent[i] = sets.find(i);
+        }
+        writeArrays(items, parent, Arrays.copyOf(sets.rank, n), file, codec);
+    }
+
+    /**
+     * Salva una qualsiasi collezione d'insiemi disgiunti, ad esempio una
+     * {@link ForestDisjointSets}. Gli elementi di ogni insieme vengono
+     * numerati consecutivamente e collegati direttamente al rappresentante,
+     * che viene conservato.
+     *
+     * @param sets
+     *                  la collezione da salvare
+     * @param file
+     *                  il file da creare o sovrascrivere
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di scrittura
+     */
+    public static <E> void write(DisjointSets<E> sets, Path file,
+                                 ElementCodec<? super E> codec) throws IOException {
+        if (sets == null || file == null || codec == null)
+            throw new NullPointerException("Parametri nulli.");
+        if (sets instanceof IntForestDisjointSets) {
+            write((IntForestDisjointSets<E>) sets, file, codec);
+            return;
+        }
+
+        List<E> items = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        for (E representative : sets.getCurrentRepresentatives()) {
+            int root = items.size();
+            items.add(representative);
+            parents.add(root);
+            for (E element : sets.getCurrentElementsOfSetContaining(representative))
+                if (!element.equals(representative)) {
+                    items.add(element);
+                    parents.add(root);
+                }
+        }
+
+        int n = items.size();
+        int[] parent = new int[n];
+        byte[] rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = parents.get(i);
+            // Un albero di altezza uno ha radice di rango uno
+            if (parent[i] != i)
+                rank[parent[i]] = 1;
+        }
+        writeArrays(items, parent, rank, file, codec);
+    }
+
+    /**
+     * Ricarica sullo heap una foresta salvata con uno dei metodi write. Il file
+     * viene letto con un'unica scansione sequenziale e gli indici degli
+     * elementi sono quelli del momento del salvataggio.
+     *
+     * @param file
+     *                  il file da leggere
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @return la foresta ricostruita
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di lettura o se il
+     *                                  file non è nel formato atteso
+     */
+    public static <E> IntForestDisjointSets<E> read(Path file, ElementCodec<? extends E> codec)
+            throws IOException {
+        MappedView<E> view = map(file, codec);
+        int n = view.size();
+
+        int[] parent = new int[n];
+        byte[] rank = new byte[n];
+        List<E> items = new ArrayList<>(n);
+        try {
+            view.buffer.position(HEADER_SIZE);
+            view.buffer.asIntBuffer().get(parent);
+            view.buffer.position(view.rankPosition);
+            view.buffer.get(rank);
+            for (int i = 0; i < n; i++)
+                items.add(view.getElement(i));
+            return new IntForestDisjointSets<>(items, parent, rank);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("File non valido: " + file + ".", e);
+        }
+    }
+
+    /**
+     * Mappa in memoria, in sola lettura, una foresta salvata con uno dei
+     * metodi write. Gli array non vengono copiati sullo heap.
+     *
+     * @param file
+     *                  il file da mappare
+     * @param codec
+     *                  il codec degli elementi
+     * @param <E>
+     *                  il tipo degli elementi
+     * @return una vista in sola lettura della foresta salvata
+     * @throws NullPointerException
+     *                                  se uno dei parametri è nullo
+     * @throws IOException
+     *                                  in caso di errore di lettura, se il
+     *                                  file non è nel formato atteso (anche
+     *                                  se la foresta non è compressa) o se
+     *                                  supera i 2 GB mappabili con un solo
+     *                                  buffer
+     */
+    public static <E> MappedView<E> map(Path file, ElementCodec<? extends E> codec)
+            throws IOException {
+        if (file == null || codec == null)
+            throw new NullPointerException("Parametri nulli.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("File troppo grande per essere mappato: " + file + ".");
+            if (length < HEADER_SIZE)
+                throw new IOException("File non valido: " + file + ".");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC)
+                throw new IOException("File non valido: " + file + ".");
+
+            int n = buffer.getInt(4);
+            long dictionaryPosition = HEADER_SIZE + 5L * n + 8L * (n + 1);
+            if (n < 0 || dictionaryPosition > length)
+                throw new IOException("File non valido: " + file + ".");
+
+            /*
+             * Il file deve contenere una foresta compressa: ogni parent è una
+             * radice. Un file corrotto con un ciclo di parent farebbe
+             * altrimenti ciclare find all'infinito.
+             */
+            for (int i = 0; i < n; i++) {
+                int parent = buffer.getInt(HEADER_SIZE + 4 * i);
+                if (parent < 0 || parent >= n || buffer.getInt(HEADER_SIZE + 4 * parent) != parent)
+                    throw new IOException("File non valido: " + file + ".");
+            }
+
+            /*
+             * Le posizioni nel dizionario partono da zero, non decrescono e
+             * non superano la fine del file, così che getElement legga solo
+             * byte del dizionario.
+             */
+            int offsetsPosition = HEADER_SIZE + 5 * n;
+            long previous = 0;
+            for (int i = 0; i <= n; i++) {
+                long offset = buffer.getLong(offsetsPosition + 8 * i);
+                if ((i == 0 && offset != 0) || offset < previous)
+                    throw new IOException("File non valido: " + file + ".");
+                previous = offset;
+            }
+            if (previous > length - dictionaryPosition)
+                throw new IOException("File non valido: " + file + ".");
+
+            return new MappedView<>(buffer, n, codec);
+        }
+    }
+
+    /**
+     * Vista in sola lettura di una foresta salvata su file e mappata in
+     * memoria. Le domande sugli indici leggono direttamente il file mappato.
+     *
+     * @param <E>
+     *                il tipo degli elementi
+     */
+    public static final class MappedView<E> {
+
+        private final ByteBuffer buffer;
+        private final LongBuffer offsets;
+        private final int size;
+        private final int rankPosition;
+        private final int dictionaryPosition;
+        private final ElementCodec<? extends E> codec;
+
+        private MappedView(ByteBuffer buffer, int size, ElementCodec<? extends E> codec) {
+            this.buffer = buffer;
+            this.size = size;
+            this.rankPosition = HEADER_SIZE + 4 * size;
+            this.dictionaryPosition = rankPosition + size + 8 * (size + 1);
+            this.codec = codec;
+
+            buffer.position(rankPosition + size);
+            this.offsets = buffer.slice().asLongBuffer();
+            buffer.position(0);
+        }
+
+        /**
+         * Restituisce il numero di elementi salvati. Gli indici validi vanno da
+         * 0 a size() - 1.
+         *
+         * @return il numero di elementi salvati
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Restituisce l'indice della radice dell'albero che contiene il nodo
+         * di indice i. Essendo la foresta compressa, verificato da map, basta
+         * una lettura.
+         *
+         * @param i
+         *              l'indice di un elemento
+         * @return l'indice del rappresentante dell'insieme che contiene i
+         * @throws IndexOutOfBoundsException
+         *                                       se l'indice non è compreso tra
+         *                                       0 e size() - 1
+         */
+        public int find(int i) {
+            checkIndex(i);
+
+            return buffer.getInt(HEADER_SIZE + 4 * i);
+        }
+
+        /**
+         * Determina se i nodi di indice i e j fanno parte dello stesso
+         * insieme.
+         *
+         * @param i
+         *              l'indice del primo elemento
+         * @param j
+         *              l'indice del secondo elemento
+         * @return true se i e j fanno parte dello stesso insieme
+         * @throws IndexOutOfBoundsException
+         *                                       se uno dei due indici non è
+         *                                       compreso tra 0 e size() - 1
+         */
+        public boolean sameSet(int i, int j) {
+            return find(i) == find(j);
+        }
+
+        /**
+         * Decodifica l'elemento di indice i dal dizionario.
+         *
+         * @param i
+         *              l'indice dell'elemento
+         * @return l'elemento di indice i
+         * @throws IndexOutOfBoundsException
+         *                                       se l'indice non è compreso tra
+         *                                       0 e size() - 1
+         */
+        public E getElement(int i) {
+            checkIndex(i);
+
+            long start = offsets.get(i);
+            long end = offsets.get(i + 1);
+            byte[] bytes = new byte[(int) (end - start)];
+            ByteBuffer element = buffer.duplicate();
+            element.position((int) (dictionaryPosition + start));
+            element.get(bytes);
+            return codec.decode(bytes);
+        }
+
+        private void checkIndex(int i) {
+            if (i < 0 || i >= size)
+                throw new IndexOutOfBoundsException("Indice non valido: " + i + ".");
+        }
+    }
+
+    private static <E> void writeArrays(List<E> items, int[] parent, byte[] rank, Path file,
+                                        ElementCodec<? super E> codec) throws IOException {
+        int n = items.size();
+        byte[][] encoded = new byte[n][];
+        for (int i = 0; i < n; i++)
+            encoded[i] = codec.encode(items.get(i));
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            for (int element : parent)
+                out.writeInt(element);
+            out.write(rank);
+
+            long offset = 0;
+            out.writeLong(offset);
+            for (byte[] element : encoded) {
+                offset += element.length;
+                out.writeLong(offset);
+            }
+            for (byte[] element : encoded)
+                out.write(element);
+        }
+    }
+}
@@ -0,0 +1,699 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Classe che implementa un grafo non orientato tramite matrice di adiacenza,
+ * come {@link AdjacencyMatrixUndirectedGraph}, ma memorizzando la matrice in
+ * array piatti di tipi primitivi invece che in liste di oggetti
+ * <code>GraphEdge<L></code>.
+ * <p>
+ * Essendo il grafo non orientato la matrice è simmetrica, per cui viene
+ * memorizzato solo il triangolo superiore (diagonale compresa, per gli archi
+ * cappio). La cella (i, j) con i <= j si trova in posizione j * (j + 1) / 2 +
+ * i: il triangolo è cioè disposto per colonne, così che l'aggiunta del nodo n
+ * aggiunga le sue celle in coda senza spostare quelle già esistenti.
+ * <p>
+ * La presenza degli archi è memorizzata in un bitset (<code>long[]</code>),
+ * un bit per cella. I pesi sono memorizzati in un <code>double[]</code>
+ * parallelo in cui <code>Double.NaN</code> indica l'assenza di peso; tale
+ * array viene allocato solo al primo inserimento di un arco pesato, per cui
+ * un grafo non pesato occupa un solo bit per coppia di nodi.
+ * <p>
+ * Gli oggetti <code>GraphEdge<L></code> non sono memorizzati, ma creati su
+ * richiesta dai metodi che li restituiscono: modificare il peso di un arco
+ * restituito non ha effetto sul grafo. I metodi {@link #hasEdge(int, int)} e
+ * {@link #getEdgeWeight(int, int)} permettono di interrogare la matrice senza
+ * creare alcun oggetto.
+ * <p>
+ * La capacità della matrice (numero di nodi rappresentabili) raddoppia quando
+ * viene esaurita. La cancellazione di un nodo compatta la matrice sul posto e
+ * decrementa di uno gli indici dei nodi successivi.
+ * <p>
+ * Il triangolo deve stare in un singolo array, per cui il grafo può contenere
+ * al massimo {@value #MAX_WEIGHTED_NODES} nodi se ha archi pesati (n * (n +
+ * 1) / 2 celle del <code>double[]</code>) e {@value #MAX_NODES} nodi
+ * altrimenti (n * (n + 1) / 2 bit del <code>long[]</code>). Superato il
+ * limite addNode e addWeightedEdge lanciano
+ * <code>IllegalStateException</code> senza modificare il grafo.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public class FlatAdjacencyMatrixUndirectedGraph<L> extends Graph<L> {
+
+    /*
+     * Capacità iniziale della matrice, in numero di nodi.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Massima lunghezza di un array allocabile in sicurezza.
+     */
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * Massimo numero di nodi di un grafo senza archi pesati, il più grande n
+     * tale che il bitset di n * (n + 1) / 2 bit stia in un array.
+     */
+    public static final int MAX_NODES = 524287;
+
+    /**
+     * Massimo numero di nodi di un grafo con archi pesati, il più grande n
+     * tale che n * (n + 1) / 2 pesi stiano in un array.
+     */
+    public static final int MAX_WEIGHTED_NODES = 65535;
+
+    /*
+     * Le seguenti variabili istanza sono protected al solo scopo di agevolare
+     * il JUnit testing
+     */
+
+    /*
+     * Insieme dei nodi e associazione di ogni nodo con il proprio indice nella
+     * matrice di adiacenza
+     */
+    protected Map<GraphNode<L>, Integer> nodesIndex;
+
+    /*
+     * Nodi del grafo, in posizione i si trova il nodo di indice i.
+     */
+    protected List<GraphNode<L>> nodes;
+
+    /*
+     * Bitset della presenza degli archi nel triangolo superiore della matrice.
+     */
+    protected long[] adjacency;
+
+    /*
+     * Pesi degli archi nel triangolo superiore della matrice, null finché non
+     * viene inserito un arco pesato.
+     */
+    protected double[] weights;
+
+    /*
+     * Numero di nodi rappresentabili senza ridimensionare gli array.
+     */
+    protected int capacity;
+
+    /*
+     * Numero di archi presenti.
+     */
+    protected int edges;
+
+    /**
+     * Crea un grafo vuoto.
+     */
+    public FlatAdjacencyMatrixUndirectedGraph() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Crea un grafo vuoto con la matrice già dimensionata per contenere il
+     * numero di nodi indicato.
+     *
+     * @param initialCapacity
+     *                            numero di nodi previsto
+     * @throws IllegalArgumentException
+     *                                      se la capacità è negativa o
+     *                                      maggiore di {@link #MAX_NODES}
+     */
+    public FlatAdjacencyMatrixUndirectedGraph(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Capacità negativa.");
+        if (initialCapacity > MAX_NODES)
+            throw new IllegalArgumentException("Capacità maggiore di " + MAX_NODES + ".");
+        this.nodesIndex = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.capacity = Math.max(initialCapacity, 1);
+        this.adjacency = new long[wordsFor(this.capacity)];
+        this.weights = null;
+        this.edges = 0;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.size();
+    }
+
+    // Gli archi sono memorizzati una sola volta, il contatore è quindi esatto
+    @Override
+    public int edgeCount() {
+        return edges;
+    }
+
+    @Override
+    public void clear() {
+        this.nodesIndex = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.capacity = INITIAL_CAPACITY;
+        this.adjacency = new long[wordsFor(INITIAL_CAPACITY)];
+        this.weights = null;
+        this.edges = 0;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    /*
+     * Gli indici dei nodi vanno assegnati nell'ordine d'inserimento a partire
+     * da zero
+     */
+    @Override
+    public boolean addNode(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (nodesIndex.containsKey(node)) return false;
+
+        if (nodeCount() == capacity)
+            grow();
+
+        /*
+         * Le celle del nuovo nodo sono in coda al triangolo e sono già vuote:
+         * vengono azzerate alla rimozione di un nodo e alla creazione.
+         */
+        nodesIndex.put(node, nodeCount());
+        nodes.add(node);
+        return true;
+    }
+
+    /*
+     * Gli indici dei nodi vanno assegnati nell'ordine d'inserimento a partire
+     * da zero
+     */
+    @Override
+    public boolean addNode(L label) {
+        return addNode(new GraphNode<>(label));
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(GraphNode<L> node) {
+        if (node == null) throw new NullPointerException("Nodo nullo.");
+        Integer index = nodesIndex.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Nodo non presente nel grafo.");
+        removeNode((int) index);
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(L label) {
+        removeNode(new GraphNode<>(label));
+    }
+
+    /*
+     * Gli indici dei nodi il cui valore sia maggiore dell'indice del nodo da
+     * cancellare devono essere decrementati di uno dopo la cancellazione del
+     * nodo
+     */
+    @Override
+    public void removeNode(int i) {
+        checkIndex(i);
+        int n = nodeCount();
+
+        for (int j = 0; j < n; j++)
+            if (isSet(cell(i, j)))
+                edges--;
+
+        /*
+         * Compattazione sul posto: le celle sono visitate in ordine crescente
+         * e la posizione di destinazione non supera mai quella di origine,
+         * per cui ogni cella viene letta prima di poter essere sovrascritta.
+         */
+        for (int b = 0; b < n; b++) {
+            if (b == i) continue;
+            int newB = b > i ? b - 1 : b;
+            for (int a = 0; a <= b; a++) {
+                if (a == i) continue;
+                int newA = a > i ? a - 1 : a;
+                long from = triangle(b) + a;
+                long to = triangle(newB) + newA;
+                if (from == to) continue;
+                if (isSet(from)) set(to);
+                else unset(to);
+                if (weights != null)
+                    weights[(int) to] = weights[(int) from];
+            }
+        }
+
+        // Le celle ora inutilizzate tornano vuote
+        for (long c = triangle(n - 1); c < triangle(n); c++) {
+            unset(c);
+            if (weights != null)
+                weights[(int) c] = Double.NaN;
+        }
+
+        nodesIndex.remove(nodes.remove(i));
+        for (int k = i; k < nodes.size(); k++)
+            nodesIndex.put(nodes.get(k), k);
+    }
+
+    @Override
+    public GraphNode<L> getNode(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        return index == null ? null : nodes.get(index);
+    }
+
+    @Override
+    public GraphNode<L> getNode(L label) {
+        return getNode(new GraphNode<>(label));
+    }
+
+    @Override
+    public GraphNode<L> getNode(int i) {
+        checkIndex(i);
+        return nodes.get(i);
+    }
+
+    @Override
+    public int getNodeIndexOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        Integer index = nodesIndex.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Nodo non appartenente al grafo.");
+        return index;
+    }
+
+    @Override
+    public int getNodeIndexOf(L label) {
+        return getNodeIndexOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getNodes() {
+        return nodesIndex.keySet();
+    }
+
+    @Override
+    public boolean addEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            throw new IllegalArgumentException("L' arco incompatibile con il grafo.");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("L'arco non appartenente al grafo.");
+
+        return put(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()),
+                edge.getWeight());
+    }
+
+    @Override
+    public boolean addEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        return addEdge(new GraphEdge<>(node1, node2, false));
+    }
+
+    @Override
+    public boolean addEdge(L label1, L label2) {
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false));
+    }
+
+    @Override
+    public boolean addEdge(int i, int j) {
+        return addWeightedEdge(i, j, Double.NaN);
+    }
+
+    @Override
+    public boolean addWeightedEdge(L label1, L label2, double weight) {
+        return addEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false, weight));
+    }
+
+    @Override
+    public boolean addWeightedEdge(GraphNode<L> node1, GraphNode<L> node2,
+                                   double weight) {
+        return addEdge(new GraphEdge<>(node1, node2, false, weight));
+    }
+
+    @Override
+    public boolean addWeightedEdge(int i, int j, double weight) {
+        checkIndex(i);
+        checkIndex(j);
+        return put(i, j, weight);
+    }
+
+    @Override
+    public void removeEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            throw new IllegalArgumentException("L' arco incompatibile con il grafo.");
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("Arco passato non appartenente al grafo.");
+
+        long c = cell(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()));
+        if (!isSet(c))
+            throw new IllegalArgumentException("Arco passato non appartenente al grafo.");
+        clearCell(c);
+    }
+
+    @Override
+    public void removeEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        removeEdge(new GraphEdge<>(node1, node2, false));
+    }
+
+    @Override
+    public void removeEdge(L label1, L label2) {
+        removeEdge(new GraphNode<>(label1), new GraphNode<>(label2));
+    }
+
+    @Override
+    public void removeEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+
+        long c = cell(i, j);
+        if (isSet(c))
+            clearCell(c);
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            return null;
+        if (!nodesIndex.containsKey(edge.getNode1()) || !nodesIndex.containsKey(edge.getNode2()))
+            throw new IllegalArgumentException("Arco inesistente nel grafo.");
+
+        return edgeAt(nodesIndex.get(edge.getNode1()), nodesIndex.get(edge.getNode2()));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node1) || !nodesIndex.containsKey(node2))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return edgeAt(nodesIndex.get(node1), nodesIndex.get(node2));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(L label1, L label2) {
+        return getEdge(new GraphEdge<>(new GraphNode<>(label1), new GraphNode<>(label2), false));
+    }
+
+    @Override
+    public GraphEdge<L> getEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return edgeAt(i, j);
+    }
+
+    /**
+     * Determina se i nodi di indice i e j sono collegati da un arco, senza
+     * creare alcun oggetto.
+     *
+     * @param i
+     *              indice del primo nodo
+     * @param j
+     *              indice del secondo nodo
+     * @return true se l'arco (i, j) è presente, false altrimenti
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non
+     *                                       corrisponde a un nodo
+     */
+    public boolean hasEdge(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return isSet(cell(i, j));
+    }
+
+    /**
+     * Restituisce il peso dell'arco tra i nodi di indice i e j, senza creare
+     * alcun oggetto.
+     *
+     * @param i
+     *              indice del primo nodo
+     * @param j
+     *              indice del secondo nodo
+     * @return il peso dell'arco, <code>Double.NaN</code> se l'arco non è
+     *         pesato oppure non è presente
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non
+     *                                       corrisponde a un nodo
+     */
+    public double getEdgeWeight(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return weights == null ? Double.NaN : weights[(int) cell(i, j)];
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("Nodo nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getAdjacentNodesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(L label) {
+        return getAdjacentNodesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphNode<L>> getAdjacentNodesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphNode<L>> toReturn = new HashSet<>();
+        for (int j = 0; j < nodeCount(); j++)
+            if (isSet(cell(i, j)))
+                toReturn.add(nodes.get(j));
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphNode<L>> getPredecessorNodesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato.");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(GraphNode<L> node) {
+        if (node == null)
+            throw new NullPointerException("node non può essere nullo.");
+        if (!nodesIndex.containsKey(node))
+            throw new IllegalArgumentException("Il nodo non appartiene al grafo.");
+
+        return getEdgesOf((int) nodesIndex.get(node));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(L label) {
+        return getEdgesOf(new GraphNode<>(label));
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getEdgesOf(int i) {
+        checkIndex(i);
+
+        Set<GraphEdge<L>> toReturn = new HashSet<>();
+        for (int j = 0; j < nodeCount(); j++) {
+            long c = cell(i, j);
+            if (isSet(c))
+                toReturn.add(newEdge(i, j, c));
+        }
+        return toReturn;
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(GraphNode<L> node) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(L label) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    @Override
+    public Set<GraphEdge<L>> getIngoingEdgesOf(int i) {
+        throw new UnsupportedOperationException(
+                "Operazione non supportata in un grafo non orientato");
+    }
+
+    /*
+     * Scorre il bitset una parola alla volta saltando quelle vuote; la colonna
+     * corrente avanza insieme alla cella, essendo le celle visitate in ordine
+     * crescente.
+     */
+    @Override
+    public Set<GraphEdge<L>> getEdges() {
+        Set<GraphEdge<L>> toReturn = new HashSet<>();
+        int words = wordsFor(nodeCount());
+        int b = 0;
+
+        for (int w = 0; w < words; w++) {
+            long word = adjacency[w];
+            while (word != 0) {
+                long c = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                while (triangle(b + 1) <= c)
+                    b++;
+                toReturn.add(newEdge((int) (c - triangle(b)), b, c));
+            }
+        }
+        return toReturn;
+    }
+
+    /*
+     * Inserisce l'arco (i, j) con il peso dato, se non è già presente.
+     */
+    private boolean put(int i, int j, double weight) {
+        long c = cell(i, j);
+        if (isSet(c))
+            return false;
+
+        // L'allocazione può fallire, per cui precede ogni modifica
+        if (!Double.isNaN(weight) && weights == null)
+            allocateWeights();
+        set(c);
+        edges++;
+        if (!Double.isNaN(weight))
+            weights[(int) c] = weight;
+        return true;
+    }
+
+    /*
+     * Rimuove l'arco memorizzato nella cella c, che deve essere presente.
+     */
+    private void clearCell(long c) {
+        unset(c);
+        edges--;
+        if (weights != null)
+            weights[(int) c] = Double.NaN;
+    }
+
+    /*
+     * Crea l'oggetto arco tra i nodi di indice i e j, null se non presente.
+     */
+    private GraphEdge<L> edgeAt(int i, int j) {
+        long c = cell(i, j);
+        return isSet(c) ? newEdge(i, j, c) : null;
+    }
+
+    private GraphEdge<L> newEdge(int i, int j, long c) {
+        double weight = weights == null ? Double.NaN : weights[(int) c];
+        return new GraphEdge<>(nodes.get(i), nodes.get(j), false, weight);
+    }
+
+    /*
+     * Raddoppia la capacità della matrice, senza superare il limite di nodi.
+     * Grazie alla disposizione per colonne le celle esistenti restano al loro
+     * posto.
+     */
+    private void grow() {
+        int limit = weights == null ? MAX_NODES : MAX_WEIGHTED_NODES;
+        if (capacity >= limit)
+            throw new IllegalStateException("Numero di nodi maggiore di " + limit + ".");
+        int newCapacity = (int) Math.min(2L * capacity, limit);
+        adjacency = Arrays.copyOf(adjacency, wordsFor(newCapacity));
+        if (weights != null) {
+            int oldLength = weights.length;
+            weights = Arrays.copyOf(weights, weightsFor(newCapacity));
+            Arrays.fill(weights, oldLength, weights.length, Double.NaN);
+        }
+        capacity = newCapacity;
+    }
+
+    /*
+     * Se la capacità raggiunta senza pesi supera il limite dei grafi pesati
+     * viene ridotta, purché i nodi presenti vi rientrino.
+     */
+    private void allocateWeights() {
+        if (nodeCount() > MAX_WEIGHTED_NODES)
+            throw new IllegalStateException(
+                    "Numero di nodi troppo elevato per memorizzare i pesi.");
+        capacity = Math.min(capacity, MAX_WEIGHTED_NODES);
+        weights = new double[weightsFor(capacity)];
+        Arrays.fill(weights, Double.NaN);
+    }
+
+    private boolean isSet(long c) {
+        return (adjacency[(int) (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    private void set(long c) {
+        adjacency[(int) (c >>> 6)] |= 1L << c;
+    }
+
+    private void unset(long c) {
+        adjacency[(int) (c >>> 6)] &= ~(1L << c);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0)
+            throw new IndexOutOfBoundsException("Valore minore di 0.");
+        if (i >= nodeCount())
+            throw new IndexOutOfBoundsException("Valore maggiore " + (nodeCount() - 1) + ".");
+    }
+
+    /*
+     * Posizione della cella (i, j) nel triangolo superiore.
+     */
+    private static long cell(int i, int j) {
+        return i <= j ? triangle(j) + i : triangle(i) + j;
+    }
+
+    /*
+     * Numero di celle del triangolo superiore di una matrice n * n, che è
+     * anche la posizione della prima cella della colonna n.
+     */
+    private static long triangle(int n) {
+        return (long) n * (n + 1) / 2;
+    }
+
+    private static int wordsFor(int n) {
+        long words = (triangle(n) + 63) >>> 6;
+        if (words > MAX_ARRAY_LENGTH)
+            throw new IllegalStateException("Numero di nodi troppo elevato.");
+        return (int) words;
+    }
+
+    private static int weightsFor(int n) {
+        long cells = triangle(n);
+        if (cells > MAX_ARRAY_LENGTH)
+            throw new IllegalStateException(
+                    "Numero di nodi troppo elevato per memorizzare i pesi.");
+        return (int) cells;
+    }
+}
@@ -1,9 +1,17 @@
 package it.unicam.cs.asdl2122.mp2;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 //ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
 
 /**
@@ -26,6 +34,11 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
      * i test JUnit.
      */
     protected Map<E, Node<E>> currentElements;
+
+    /*
+     * Insieme dei rappresentanti correnti, aggiornato da makeSet e union.
+     */
+    protected Set<E> currentRepresentatives;
     
     /*
      * Classe interna statica che rappresenta i nodi degli alberi della foresta.
@@ -50,9 +63,16 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
          */
         protected int rank;
 
+        /*
+         * Il nodo successivo nell'anello circolare che collega tutti i nodi
+         * dello stesso insieme. Un insieme con un solo elemento è un anello
+         * in cui il nodo punta a se stesso.
+         */
+        protected Node<E> next;
+
         /**
-         * Costruisce un nodo radice con parent che punta a se stesso e rango
-         * zero.
+         * Costruisce un nodo radice con parent che punta a se stesso, rango
+         * zero e anello formato solo da se stesso.
          * 
          * @param item
          *                 l'elemento conservato in questo nodo
@@ -61,6 +81,7 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
             this.item = item;
             this.parent = this;
             this.rank = 0;
+            this.next = this;
         }
 
     }
@@ -71,6 +92,7 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
      */
     public ForestDisjointSets() {
         currentElements = new HashMap<>();
+        currentRepresentatives = new HashSet<>();
     }
 
     @Override
@@ -93,6 +115,7 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
             throw new IllegalArgumentException("Elemento già presente.");
 
         currentElements.put(e,new Node<>(e));
+        currentRepresentatives.add(e);
     }
 
     /*
@@ -129,8 +152,103 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
     @Override
     public void union(E e1, E e2) {
         checkParameters(e1, e2);
-        if (findSet(e1).equals(findSet(e2)))
-            return;
+        link(currentElements.get(e1), currentElements.get(e2));
+    }
+
+    /**
+     * Crea un insieme disgiunto per ogni elemento della collezione data. La
+     * collezione viene controllata per intero prima di inserire qualsiasi
+     * elemento, quindi in caso di eccezione la foresta non viene modificata.
+     *
+     * @param elements
+     *                     gli elementi da inserire
+     * @throws NullPointerException
+     *                                      se la collezione o uno dei suoi
+     *                                      elementi è null
+     * @throws IllegalArgumentException
+     *                                      se uno degli elementi è già presente
+     *                                      o compare più volte nella collezione
+     */
+    public void makeSets(Collection<? extends E> elements) {
+        if (elements == null)
+            throw new NullPointerException("Collezione nulla.");
+        for (E element : elements)
+            if (isPresent(element))
+                throw new IllegalArgumentException("Elemento già presente.");
+
+        // Su una foresta vuota le tabelle vengono dimensionate una volta sola
+        if (currentElements.isEmpty()) {
+            currentElements = new HashMap<>((int) (elements.size() / 0.75f) + 1);
+            currentRepresentatives = new HashSet<>((int) (elements.size() / 0.75f) + 1);
+        }
+
+        List<E> inserted = new ArrayList<>(elements.size());
+        for (E element : elements) {
+            if (currentElements.putIfAbsent(element, new Node<>(element)) != null) {
+                // Elemento ripetuto nella collezione: annullo gli inserimenti
+                for (E toRemove : inserted) {
+                    currentElements.remove(toRemove);
+                    currentRepresentatives.remove(toRemove);
+                }
+                throw new IllegalArgumentException("Elemento ripetuto: " + element + ".");
+            }
+            currentRepresentatives.add(element);
+            inserted.add(element);
+        }
+    }
+
+    /**
+     * Unisce, per ogni coppia data, gli insiemi di cui fanno parte i due
+     * elementi della coppia. Tutte le coppie vengono controllate prima di
+     * effettuare qualsiasi unione, quindi in caso di eccezione la foresta non
+     * viene modificata.
+     *
+     * @param pairs
+     *                  le coppie di elementi da unire
+     * @return il numero di unioni effettive, cioè di coppie i cui elementi
+     *         facevano parte d'insiemi diversi
+     * @throws NullPointerException
+     *                                      se le coppie, una coppia o uno dei
+     *                                      suoi elementi sono null
+     * @throws IllegalArgumentException
+     *                                      se uno degli elementi non è
+     *                                      presente
+     */
+    public int unionAll(Iterable<? extends Map.Entry<? extends E, ? extends E>> pairs) {
+        if (pairs == null)
+            throw new NullPointerException("Coppie nulle.");
+
+        // Prima passata: controllo e risoluzione dei nodi
+        List<Node<E>> nodes = new ArrayList<>();
+        for (Map.Entry<? extends E, ? extends E> pair : pairs) {
+            checkParameters(pair.getKey(), pair.getValue());
+            nodes.add(currentElements.get(pair.getKey()));
+            nodes.add(currentElements.get(pair.getValue()));
+        }
+
+        int merged = 0;
+        for (int i = 0; i < nodes.size(); i += 2)
+            if (link(nodes.get(i), nodes.get(i + 1)))
+                merged++;
+        return merged;
+    }
+
+    /**
+     * Unisce gli insiemi di cui fanno parte i due nodi secondo la politica di
+     * {@link #union(Object, Object)}. Le sottoclassi che cambiano il modo in
+     * cui vengono unite le radici ridefiniscono questo metodo.
+     *
+     * @param node1
+     *                  un nodo del primo insieme
+     * @param node2
+     *                  un nodo del secondo insieme
+     * @return true se i due insiemi erano distinti e sono stati uniti
+     */
+    protected boolean link(Node<E> node1, Node<E> node2) {
+        Node<E> rep1 = findRoot(node1);
+        Node<E> rep2 = findRoot(node2);
+        if (rep1 == rep2)
+            return false;
 /*
         //I due frammenti di codice sono equivalenti.
         //Questa versione non "funziona" correttamente
@@ -145,27 +263,47 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
                 currentElements.get(rep2).parent.rank++;
         }
  */
-        Node<E> rep1 = currentElements.get(findSet(e1));
-        Node<E> rep2 = currentElements.get(findSet(e2));
-        if (rep1.rank > rep2.rank)
+        if (rep1.rank > rep2.rank) {
             rep2.parent = rep1;
-        else {
+            currentRepresentatives.remove(rep2.item);
+        } else {
             rep1.parent = rep2;
+            currentRepresentatives.remove(rep1.item);
             if (rep1.rank == rep2.rank)
                 rep2.rank++;
         }
+
+        // Scambiando i successori delle due radici i due anelli diventano uno
+        Node<E> temp = rep1.next;
+        rep1.next = rep2.next;
+        rep2.next = temp;
+        return true;
     }
 
+    /*
+     * Restituisce la radice dell'albero del nodo dato, comprimendo il cammino
+     * senza ricorsione e senza accessi alla mappa.
+     */
+    protected Node<E> findRoot(Node<E> node) {
+        Node<E> root = node;
+        while (root.parent != root)
+            root = root.parent;
+
+        while (node.parent != root) {
+            Node<E> next = node.parent;
+            node.parent = root;
+            node = next;
+        }
+        return root;
+    }
+
+    /*
+     * I rappresentanti sono mantenuti da makeSet e union, quindi il costo è
+     * proporzionale al numero d'insiemi e non al numero di elementi.
+     */
     @Override
     public Set<E> getCurrentRepresentatives() {
-        //Set di ritorno
-        Set<E> toReturn = new HashSet<>();
-        
-        for (E element : currentElements.keySet())
-            if (findSet(element).equals(element))
-                toReturn.add(element);
-        
-        return toReturn;
+        return new HashSet<>(currentRepresentatives);
     }
 
     @Override
@@ -175,22 +313,102 @@ public class ForestDisjointSets<E> implements DisjointSets<E> {
         if (!isPresent(e))
             throw new IllegalArgumentException("Elemento non presente.");
 
-        //Rappresentante di e
-        E eRepresentative = findSet(e);
-
         //Set di ritorno
         Set<E> toReturn = new HashSet<>();
-
-        for (E element : currentElements.keySet())
-            if (eRepresentative.equals(findSet(element)))
-                toReturn.add(element);
+        forEachElementOfSetContaining(e, toReturn::add);
 
         return toReturn;
     }
 
+    /**
+     * Esegue un'azione su ogni elemento dell'insieme disgiunto di cui fa parte
+     * l'elemento dato, percorrendo l'anello dell'insieme senza creare nessuna
+     * collezione. Il costo è la cardinalità dell'insieme.
+     *
+     * @param e
+     *                   l'elemento di cui si vuole visitare l'insieme
+     * @param action
+     *                   l'azione da eseguire su ogni elemento
+     * @throws NullPointerException
+     *                                      se l'elemento o l'azione sono null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento non è presente
+     */
+    public void forEachElementOfSetContaining(E e, Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("Azione nulla.");
+
+        Iterator<E> iterator = iteratorOfSetContaining(e);
+        while (iterator.hasNext())
+            action.accept(iterator.next());
+    }
+
+    /**
+     * Restituisce un iteratore sugli elementi dell'insieme disgiunto di cui fa
+     * parte l'elemento dato, che percorre l'anello dell'insieme a partire da
+     * quell'elemento. L'iteratore non implementa l'operazione remove() e il
+     * suo comportamento non è specificato se l'insieme viene unito a un altro
+     * durante l'iterazione.
+     *
+     * @param e
+     *              l'elemento di cui si vuole visitare l'insieme
+     * @return un iteratore sugli elementi dell'insieme
+     * @throws NullPointerException
+     *                                      se l'elemento è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento non è presente
+     */
+    public Iterator<E> iteratorOfSetContaining(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+        if (!isPresent(e))
+            throw new IllegalArgumentException("Elemento non presente.");
+
+        Node<E> start = currentElements.get(e);
+        return new Iterator<E>() {
+            private Node<E> current = start;
+            private boolean started = false;
+
+            @Override
+            public boolean hasNext() {
+                return !started || current != start;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                started = true;
+                E toReturn = current.item;
+                current = current.next;
+                return toReturn;
+            }
+        };
+    }
+
+    /**
+     * Restituisce uno spliterator sugli elementi dell'insieme disgiunto di cui
+     * fa parte l'elemento dato, utilizzabile anche per stream paralleli:
+     * l'anello viene diviso in blocchi di elementi consecutivi.
+     *
+     * @param e
+     *              l'elemento di cui si vuole visitare l'insieme
+     * @return uno spliterator sugli elementi dell'insieme
+     * @throws NullPointerException
+     *                                      se l'elemento è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento non è presente
+     */
+    public Spliterator<E> spliteratorOfSetContaining(E e) {
+        return Spliterators.spliteratorUnknownSize(iteratorOfSetContaining(e),
+                Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
     @Override
     public void clear() {
         currentElements.clear();
+        currentRepresentatives.clear();
     }
 
     private void checkParameters(E e1, E e2){
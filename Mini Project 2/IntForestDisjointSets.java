@@ -0,0 +1,584 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Implementazione dell'interfaccia <code>DisjointSets<E></code> tramite una
+ * foresta di alberi, come {@link ForestDisjointSets}, ma rappresentata con
+ * array di tipi primitivi. Ogni elemento inserito viene associato una sola
+ * volta a un indice intero denso (0, 1, 2, ... nell'ordine d'inserimento) e
+ * la foresta è memorizzata negli array <code>parent</code> e
+ * <code>rank</code>, indicizzati da tali indici.
+ * <p>
+ * Oltre ai metodi dell'interfaccia, la classe espone le operazioni
+ * {@link #find(int)} e {@link #union(int, int)} che lavorano direttamente
+ * sugli indici, senza boxing e senza accessi alla mappa degli elementi.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ *
+ * @param <E>
+ *                il tipo degli elementi degli insiemi disgiunti
+ */
+public class IntForestDisjointSets<E> implements DisjointSets<E> {
+
+    /*
+     * Capacità iniziale degli array della foresta.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Numero minimo di coppie sotto il quale unionAll con un ForkJoinPool
+     * procede comunque sequenzialmente.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /*
+     * Mappa che associa a ogni elemento inserito il proprio indice. Le
+     * variabili sono protected unicamente per permettere i test JUnit.
+     */
+    protected Map<E, Integer> ids;
+
+    /*
+     * Elementi inseriti, in posizione i si trova l'elemento di indice i.
+     */
+    protected List<E> items;
+
+    /*
+     * parent[i] è l'indice del parent del nodo i. Se i è una radice allora
+     * parent[i] == i.
+     */
+    protected int[] parent;
+
+    /*
+     * rank[i] è il rango del nodo i. Essendo il rango limitato dal logaritmo
+     * del numero di elementi è sufficiente un byte.
+     */
+    protected byte[] rank;
+
+    /*
+     * Numero di elementi inseriti, cioè numero di posizioni usate negli array.
+     */
+    protected int size;
+
+    /**
+     * Costruisce una foresta vuota d'insiemi disgiunti rappresentati da
+     * alberi.
+     */
+    public IntForestDisjointSets() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Costruisce una foresta vuota d'insiemi disgiunti predisponendo spazio
+     * per un certo numero di elementi.
+     *
+     * @param initialCapacity
+     *                            il numero di elementi previsto
+     * @throws IllegalArgumentException
+     *                                      se initialCapacity è negativa
+     */
+    public IntForestDisjointSets(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Capacità negativa.");
+
+        this.ids = new HashMap<>();
+        this.items = new ArrayList<>(initialCapacity);
+        this.parent = new int[initialCapacity];
+        this.rank = new byte[initialCapacity];
+        this.size = 0;
+    }
+
+    /*
+     * Costruisce una foresta a partire da array già popolati, senza
+     * ripetere makeSet e union. Usato da DisjointSetsSnapshot per il
+     * caricamento da file: gli array non vengono copiati.
+     */
+    IntForestDisjointSets(List<E> items, int[] parent, byte[] rank) {
+        if (items.size() != parent.length || parent.length != rank.length)
+            throw new IllegalArgumentException("Dimensioni degli array diverse.");
+
+        this.ids = new HashMap<>(Math.max(INITIAL_CAPACITY, (int) (items.size() / 0.75f) + 1));
+        this.items = new ArrayList<>(items);
+        this.parent = parent;
+        this.rank = rank;
+        this.size = items.size();
+
+        for (int i = 0; i < size; i++) {
+            if (parent[i] < 0 || parent[i] >= size)
+                throw new IllegalArgumentException("Parent non valido: " + parent[i] + ".");
+            if (ids.put(this.items.get(i), i) != null)
+                throw new IllegalArgumentException("Elemento duplicato: " + this.items.get(i) + ".");
+        }
+    }
+
+    @Override
+    public boolean isPresent(E e) {
+        if (e == null)
+            throw new NullPointerException("e non può essere nullo.");
+
+        return ids.containsKey(e);
+    }
+
+    /*
+     * Assegna all'elemento il primo indice libero e crea un albero della
+     * foresta consistente di un solo nodo di rango zero il cui parent è se
+     * stesso.
+     */
+    @Override
+    public void makeSet(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+        if (isPresent(e))
+            throw new IllegalArgumentException("Elemento già presente.");
+
+        ensureCapacity(size + 1);
+        ids.put(e, size);
+        items.add(e);
+        parent[size] = size;
+        rank[size] = 0;
+        size++;
+    }
+
+    @Override
+    public E findSet(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+
+        Integer id = ids.get(e);
+        if (id == null)
+            return null;
+
+        return items.get(find(id));
+    }
+
+    /*
+     * Stessa politica di ForestDisjointSets: il rappresentante dell'unione è
+     * la radice di rango più alto e, a parità di rango, quella dell'insieme
+     * di cui fa parte e2.
+     */
+    @Override
+    public void union(E e1, E e2) {
+        checkParameters(e1, e2);
+
+        union(ids.get(e1), ids.get(e2));
+    }
+
+    @Override
+    public Set<E> getCurrentRepresentatives() {
+        //Set di ritorno
+        Set<E> toReturn = new HashSet<>();
+
+        for (int i = 0; i < size; i++)
+            if (parent[i] == i)
+                toReturn.add(items.get(i));
+
+        return toReturn;
+    }
+
+    @Override
+    public Set<E> getCurrentElementsOfSetContaining(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+        if (!isPresent(e))
+            throw new IllegalArgumentException("Elemento non presente.");
+
+        //Radice dell'albero di e
+        int root = find(ids.get(e));
+
+        //Set di ritorno
+        Set<E> toReturn = new HashSet<>();
+
+        for (int i = 0; i < size; i++)
+            if (find(i) == root)
+                toReturn.add(items.get(i));
+
+        return toReturn;
+    }
+
+    /*
+     * Gli array non vengono ridimensionati: la foresta potrà essere
+     * ricostruita senza nuove allocazioni.
+     */
+    @Override
+    public void clear() {
+        ids.clear();
+        items.clear();
+        size = 0;
+    }
+
+    /**
+     * Crea un insieme disgiunto per ogni elemento della collezione data,
+     * assegnando gli indici nell'ordine d'iterazione. Gli array vengono
+     * ridimensionati una volta sola. In caso di eccezione la foresta non viene
+     * modificata.
+     *
+     * @param elements
+     *                     gli elementi da inserire
+     * @throws NullPointerException
+     *                                      se la collezione o uno dei suoi
+     *                                      elementi è null
+     * @throws IllegalArgumentException
+     *                                      se uno degli elementi è già presente
+     *                                      o compare più volte nella collezione
+     */
+    public void makeSets(Collection<? extends E> elements) {
+        if (elements == null)
+            throw new NullPointerException("Collezione nulla.");
+
+        ensureCapacity(size + elements.size());
+        // Su una foresta vuota la mappa viene dimensionata una volta sola
+        if (ids.isEmpty())
+            ids = new HashMap<>((int) (elements.size() / 0.75f) + 1);
+
+        int first = size;
+        for (E element : elements) {
+            if (element == null || ids.putIfAbsent(element, size) != null) {
+                // Annullo gli inserimenti già effettuati
+                for (int i = first; i < size; i++)
+                    ids.remove(items.get(i));
+                items.subList(first, size).clear();
+                size = first;
+                if (element == null)
+                    throw new NullPointerException("Elemento nullo.");
+                throw new IllegalArgumentException("Elemento già presente: " + element + ".");
+            }
+            items.add(element);
+            parent[size] = size;
+            rank[size] = 0;
+            size++;
+        }
+    }
+
+    /**
+     * Unisce, per ogni coppia data, gli insiemi di cui fanno parte i due
+     * elementi della coppia. Tutte le coppie vengono controllate e tradotte
+     * in indici prima di effettuare qualsiasi unione.
+     *
+     * @param pairs
+     *                  le coppie di elementi da unire
+     * @return il numero di unioni effettive
+     * @throws NullPointerException
+     *                                      se le coppie, una coppia o uno dei
+     *                                      suoi elementi sono null
+     * @throws IllegalArgumentException
+     *                                      se uno degli elementi non è
+     *                                      presente
+     */
+    public int unionAll(Iterable<? extends Map.Entry<? extends E, ? extends E>> pairs) {
+        if (pairs == null)
+            throw new NullPointerException("Coppie nulle.");
+
+        int[] indexes = new int[16];
+        int length = 0;
+        for (Map.Entry<? extends E, ? extends E> pair : pairs) {
+            if (length + 2 > indexes.length)
+                indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            indexes[length++] = indexOf(pair.getKey());
+            indexes[length++] = indexOf(pair.getValue());
+        }
+        return unionAll(Arrays.copyOf(indexes, length));
+    }
+
+    /**
+     * Unisce, per ogni coppia d'indici data, gli insiemi che contengono i due
+     * nodi. La coppia k è formata da pairs[2k] e pairs[2k + 1]. Tutti gli
+     * indici vengono controllati prima di effettuare qualsiasi unione.
+     *
+     * @param pairs
+     *                  le coppie d'indici, una dopo l'altra
+     * @return il numero di unioni effettive
+     * @throws NullPointerException
+     *                                       se l'array è null
+     * @throws IllegalArgumentException
+     *                                       se l'array ha lunghezza dispari
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non è compreso
+     *                                       tra 0 e size() - 1
+     */
+    public int unionAll(int[] pairs) {
+        checkPairs(pairs);
+
+        int merged = 0;
+        for (int k = 0; k < pairs.length; k += 2)
+            if (link(pairs[k], pairs[k + 1]))
+                merged++;
+        return merged;
+    }
+
+    /**
+     * Come {@link #unionAll(int[])}, ma divide le coppie tra i thread del pool
+     * dato. Ogni thread calcola su una foresta privata una foresta ricoprente
+     * della propria porzione di coppie, cioè le sole coppie che uniscono
+     * effettivamente due insiemi (al più size() - 1); le foreste parziali
+     * vengono poi unite in questa. Conviene quando le coppie sono molte più
+     * degli elementi, altrimenti si procede sequenzialmente.
+     *
+     * @param pairs
+     *                  le coppie d'indici, una dopo l'altra
+     * @param pool
+     *                  il pool in cui eseguire il calcolo
+     * @return il numero di unioni effettive
+     * @throws NullPointerException
+     *                                       se l'array o il pool sono null
+     * @throws IllegalArgumentException
+     *                                       se l'array ha lunghezza dispari
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non è compreso
+     *                                       tra 0 e size() - 1
+     */
+    public int unionAll(int[] pairs, ForkJoinPool pool) {
+        if (pool == null)
+            throw new NullPointerException("Pool nullo.");
+        checkPairs(pairs);
+
+        int pairCount = pairs.length / 2;
+        int tasks = Math.min(pool.getParallelism(), pairCount / Math.max(size, 1));
+        if (pairCount < PARALLEL_THRESHOLD || tasks < 2)
+            return unionAll(pairs);
+
+        List<SpanningForestTask> partials = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            SpanningForestTask task = new SpanningForestTask(pairs,
+                    2 * (int) ((long) pairCount * t / tasks),
+                    2 * (int) ((long) pairCount * (t + 1) / tasks), size);
+            partials.add(task);
+            pool.execute(task);
+        }
+
+        int merged = 0;
+        for (SpanningForestTask task : partials) {
+            int[] forest = task.join();
+            for (int k = 0; k < forest.length; k += 2)
+                if (link(forest[k], forest[k + 1]))
+                    merged++;
+        }
+        return merged;
+    }
+
+    /**
+     * Restituisce il numero di elementi inseriti. Gli indici validi vanno da
+     * 0 a size() - 1.
+     *
+     * @return il numero di elementi inseriti
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Restituisce l'indice assegnato a un elemento al momento del suo
+     * inserimento.
+     *
+     * @param e
+     *              l'elemento di cui si vuole l'indice
+     * @return l'indice dell'elemento
+     * @throws NullPointerException
+     *                                      se l'elemento passato è null
+     * @throws IllegalArgumentException
+     *                                      se l'elemento passato non è
+     *                                      presente
+     */
+    public int indexOf(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+
+        Integer id = ids.get(e);
+        if (id == null)
+            throw new IllegalArgumentException("Elemento non presente.");
+
+        return id;
+    }
+
+    /**
+     * Restituisce l'elemento a cui è stato assegnato un certo indice.
+     *
+     * @param i
+     *              l'indice dell'elemento
+     * @return l'elemento di indice i
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       size() - 1
+     */
+    public E getElement(int i) {
+        checkIndex(i);
+
+        return items.get(i);
+    }
+
+    /**
+     * Restituisce l'indice della radice dell'albero che contiene il nodo di
+     * indice i, applicando la compressione del cammino.
+     *
+     * @param i
+     *              l'indice di un elemento
+     * @return l'indice del rappresentante dell'insieme che contiene i
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       size() - 1
+     */
+    public int find(int i) {
+        checkIndex(i);
+
+        return root(i);
+    }
+
+    /*
+     * Find-set con compressione del cammino senza controllo dell'indice.
+     */
+    private int root(int i) {
+        // Prima passata: cerco la radice
+        int root = i;
+        while (parent[root] != root)
+            root = parent[root];
+
+        // Seconda passata: compressione del cammino, senza ricorsione
+        while (parent[i] != root) {
+            int next = parent[i];
+            parent[i] = root;
+            i = next;
+        }
+        return root;
+    }
+
+    /**
+     * Unisce gli insiemi che contengono i nodi di indice i e j con
+     * l'euristica "unione per rango". A parità di rango la radice
+     * dell'insieme di j diventa la radice dell'unione.
+     *
+     * @param i
+     *              l'indice di un elemento del primo insieme
+     * @param j
+     *              l'indice di un elemento del secondo insieme
+     * @return true se i due insiemi erano distinti e sono stati uniti, false
+     *         se i e j facevano già parte dello stesso insieme
+     * @throws IndexOutOfBoundsException
+     *                                       se uno dei due indici non è
+     *                                       compreso tra 0 e size() - 1
+     */
+    public boolean union(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+
+        return link(i, j);
+    }
+
+    /*
+     * Unione per rango senza controllo degli indici.
+     */
+    private boolean link(int i, int j) {
+        int root1 = root(i);
+        int root2 = root(j);
+        if (root1 == root2)
+            return false;
+
+        if (rank[root1] > rank[root2])
+            parent[root2] = root1;
+        else {
+            parent[root1] = root2;
+            if (rank[root1] == rank[root2])
+                rank[root2]++;
+        }
+        return true;
+    }
+
+    /*
+     * Raddoppia la dimensione degli array finché non possono contenere almeno
+     * minCapacity elementi.
+     */
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= parent.length)
+            return;
+
+        int newCapacity = Math.max(parent.length * 2, INITIAL_CAPACITY);
+        while (newCapacity < minCapacity)
+            newCapacity *= 2;
+
+        parent = Arrays.copyOf(parent, newCapacity);
+        rank = Arrays.copyOf(rank, newCapacity);
+    }
+
+    /*
+     * Compito che calcola una foresta ricoprente delle coppie in
+     * pairs[from, to) usando una foresta privata con n nodi. Restituisce le
+     * sole coppie che hanno unito due alberi diversi.
+     */
+    private static class SpanningForestTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] pairs;
+        private final int from;
+        private final int to;
+        private final int n;
+
+        private SpanningForestTask(int[] pairs, int from, int to, int n) {
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+            this.n = n;
+        }
+
+        @Override
+        protected int[] compute() {
+            int[] localParent = new int[n];
+            for (int i = 0; i < n; i++)
+                localParent[i] = i;
+
+            // Una foresta ricoprente ha al più n - 1 archi
+            int[] forest = new int[2 * Math.min(n, (to - from) / 2)];
+            int length = 0;
+            for (int k = from; k < to; k += 2) {
+                int root1 = localRoot(localParent, pairs[k]);
+                int root2 = localRoot(localParent, pairs[k + 1]);
+                if (root1 != root2) {
+                    localParent[root1] = root2;
+                    forest[length++] = pairs[k];
+                    forest[length++] = pairs[k + 1];
+                }
+            }
+            return Arrays.copyOf(forest, length);
+        }
+
+        /*
+         * Find-set con dimezzamento del cammino.
+         */
+        private static int localRoot(int[] localParent, int i) {
+            while (localParent[i] != i) {
+                localParent[i] = localParent[localParent[i]];
+                i = localParent[i];
+            }
+            return i;
+        }
+    }
+
+    private void checkPairs(int[] pairs) {
+        if (pairs == null)
+            throw new NullPointerException("Coppie nulle.");
+        if (pairs.length % 2 != 0)
+            throw new IllegalArgumentException("Numero d'indici dispari.");
+        for (int element : pairs)
+            checkIndex(element);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Indice non valido: " + i + ".");
+    }
+
+    private void checkParameters(E e1, E e2) {
+        if (e1 == null || e2 == null)
+            throw new NullPointerException("Elementi nulli.");
+        if (!isPresent(e1) || !isPresent(e2))
+            throw new IllegalArgumentException("Elemento non presente.");
+    }
+}
@@ -9,8 +9,9 @@ import java.util.*;
  * Classe singleton che implementa l'algoritmo di Kruskal per trovare un
  * Minimum Spanning Tree di un grafo non orientato, pesato e con pesi non
  * negativi. L'algoritmo implementato si avvale della classe
- * {@code ForestDisjointSets<GraphNode<L>>} per gestire una collezione d'insiemi
- * disgiunti di nodi del grafo.
+ * {@code IntForestDisjointSets<GraphNode<L>>} per gestire una collezione
+ * d'insiemi disgiunti di nodi del grafo, lavorando direttamente sugli indici
+ * interi che questa assegna ai nodi.
  *
  * @author Luca Tesei (template)
  *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
@@ -25,7 +26,7 @@ public class KruskalMSP<L> {
      * Struttura dati per rappresentare gli insiemi disgiunti utilizzata
      * dall'algoritmo di Kruskal.
      */
-    private final ForestDisjointSets<GraphNode<L>> disjointSets;
+    private final IntForestDisjointSets<GraphNode<L>> disjointSets;
 
     /*
      * Comparatore tra archi in base al peso.
@@ -47,7 +48,7 @@ public class KruskalMSP<L> {
      * l'algoritmo di Kruskal su un grafo non orientato e pesato.
      */
     public KruskalMSP() {
-        this.disjointSets = new ForestDisjointSets<>();
+        this.disjointSets = new IntForestDisjointSets<>();
         this.edgesComparator = new EdgesComparator();
     }
 
@@ -79,18 +80,16 @@ public class KruskalMSP<L> {
         Set<GraphEdge<L>> toReturn = new HashSet<>();
 
         disjointSets.clear();
-        for (GraphNode<L> element : g.getNodes())
-            disjointSets.makeSet(element);
+        disjointSets.makeSets(g.getNodes());
 
         ArrayList<GraphEdge<L>> edgesInAscendingOrder = new ArrayList<>(g.getEdges());
         edgesInAscendingOrder.sort(edgesComparator);
 
         for (GraphEdge<L> element : edgesInAscendingOrder) {
-            if (disjointSets.findSet(element.getNode1()) !=
-                    disjointSets.findSet(element.getNode2())) {
+            // union restituisce true solo se i due nodi erano in insiemi diversi
+            if (disjointSets.union(disjointSets.indexOf(element.getNode1()),
+                    disjointSets.indexOf(element.getNode2())))
                 toReturn.add(element);
-                disjointSets.union(element.getNode1(), element.getNode2());
-            }
         }
         return toReturn;
     }
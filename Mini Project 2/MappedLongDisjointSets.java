@@ -0,0 +1,338 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Foresta d'insiemi disgiunti memorizzata fuori dallo heap, in un file mappato
+ * in memoria, per collezioni con più di 2^31 elementi. Gli elementi sono
+ * identificati direttamente da indici di tipo long compresi tra 0 e
+ * capacity() - 1, e non da oggetti.
+ * <p>
+ * Ogni elemento occupa una parola di 8 byte che contiene il rango nei 8 bit
+ * alti e l'indice del parent più uno nei 56 bit bassi. Una parola nulla indica
+ * un elemento non ancora inserito con makeSet: un file nuovo, che il sistema
+ * operativo riempie di zeri, rappresenta quindi una collezione vuota e non va
+ * inizializzato. Poiché un singolo {@link MappedByteBuffer} non può superare
+ * i 2 GB, le parole sono divise in segmenti di 2^27 elementi (1 GB) mappati
+ * separatamente.
+ * <p>
+ * Un'intestazione all'inizio del file conserva capacità, numero di elementi e
+ * numero d'insiemi, così che un file possa essere riaperto e la collezione
+ * ripresa da dove era stata lasciata.
+ * <p>
+ * La classe non è thread-safe. Il find-set realizza il dimezzamento del
+ * cammino e l'unione realizza l'euristica "unione per rango" con la stessa
+ * politica di {@link ForestDisjointSets}.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ */
+public class MappedLongDisjointSets implements Closeable {
+
+    /*
+     * Numero magico che identifica i file di questo formato ("MLDS").
+     */
+    private static final int MAGIC = 0x4D4C4453;
+
+    /*
+     * Dimensione riservata all'intestazione: le parole iniziano a un confine
+     * di pagina.
+     */
+    private static final int HEADER_SIZE = 4096;
+
+    /*
+     * Posizioni dei campi dell'intestazione.
+     */
+    private static final int CAPACITY_POSITION = 8;
+    private static final int ELEMENTS_POSITION = 16;
+    private static final int SETS_POSITION = 24;
+
+    /*
+     * Ogni segmento contiene 2^SEGMENT_SHIFT parole.
+     */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /*
+     * Maschera dei 56 bit che contengono il parent più uno.
+     */
+    private static final long PARENT_MASK = (1L << 56) - 1;
+
+    /**
+     * Capacità massima, limitata dai 56 bit disponibili per il parent.
+     */
+    public static final long MAX_CAPACITY = PARENT_MASK - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long capacity;
+
+    private long elementCount;
+    private long setCount;
+
+    /**
+     * Apre, o crea se non esiste, una collezione d'insiemi disgiunti
+     * memorizzata nel file dato.
+     *
+     * @param file
+     *                     il file che contiene la collezione
+     * @param capacity
+     *                     il numero massimo di elementi; se il file esiste già
+     *                     deve coincidere con quella con cui è stato creato
+     * @throws NullPointerException
+     *                                      se il file è nullo
+     * @throws IllegalArgumentException
+     *                                      se la capacità non è compresa tra 0
+     *                                      e {@link #MAX_CAPACITY}
+     * @throws IOException
+     *                                      in caso di errore di accesso al file
+     *                                      o se il file esistente non è nel
+     *                                      formato atteso o ha un'altra
+     *                                      capacità
+     */
+    public MappedLongDisjointSets(Path file, long capacity) throws IOException {
+        if (file == null)
+            throw new NullPointerException("File nullo.");
+        if (capacity < 0 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Capacità non valida: " + capacity + ".");
+
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean isNew = channel.size() == 0;
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (isNew) {
+                header.putInt(0, MAGIC);
+                header.putLong(CAPACITY_POSITION, capacity);
+            } else if (header.getInt(0) != MAGIC)
+                throw new IOException("File non valido: " + file + ".");
+            else if (header.getLong(CAPACITY_POSITION) != capacity)
+                throw new IOException("Il file è stato creato con capacità "
+                        + header.getLong(CAPACITY_POSITION) + ".");
+
+            this.elementCount = header.getLong(ELEMENTS_POSITION);
+            this.setCount = header.getLong(SETS_POSITION);
+
+            int segmentCount = (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long words = Math.min(capacity - first, SEGMENT_MASK + 1);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + (first << 3), words << 3);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce il numero massimo di elementi.
+     *
+     * @return la capacità
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Restituisce il numero di elementi inseriti.
+     *
+     * @return il numero di elementi inseriti
+     */
+    public long elementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Restituisce il numero d'insiemi disgiunti correnti.
+     *
+     * @return il numero d'insiemi
+     */
+    public long setCount() {
+        return setCount;
+    }
+
+    /**
+     * Determina se un elemento è stato precedentemente inserito.
+     *
+     * @param id
+     *               l'indice dell'elemento
+     * @return true se l'elemento è presente
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       capacity() - 1
+     */
+    public boolean isPresent(long id) {
+        checkIndex(id);
+
+        return read(id) != 0;
+    }
+
+    /**
+     * Crea un nuovo insieme disgiunto contenente solo l'elemento dato.
+     *
+     * @param id
+     *               l'indice dell'elemento
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       capacity() - 1
+     * @throws IllegalArgumentException
+     *                                       se l'elemento è già presente
+     */
+    public void makeSet(long id) {
+        if (isPresent(id))
+            throw new IllegalArgumentException("Elemento già presente: " + id + ".");
+
+        write(id, word(id, 0));
+        elementCount++;
+        setCount++;
+    }
+
+    /**
+     * Restituisce l'indice del rappresentante dell'insieme che contiene
+     * l'elemento dato, dimezzando il cammino percorso.
+     *
+     * @param id
+     *               l'indice dell'elemento
+     * @return l'indice del rappresentante
+     * @throws IndexOutOfBoundsException
+     *                                       se l'indice non è compreso tra 0 e
+     *                                       capacity() - 1
+     * @throws IllegalArgumentException
+     *                                       se l'elemento non è presente
+     */
+    public long find(long id) {
+        long word = checkPresent(id);
+
+        long parent = parentOf(word);
+        while (parent != id) {
+            long parentWord = read(parent);
+            long grandParent = parentOf(parentWord);
+            if (grandParent != parent)
+                write(id, word(grandParent, rankOf(word)));
+            id = grandParent;
+            word = read(id);
+            parent = parentOf(word);
+        }
+        return id;
+    }
+
+    /**
+     * Unisce gli insiemi che contengono i due elementi. A parità di rango il
+     * rappresentante dell'unione è quello dell'insieme di id2.
+     *
+     * @param id1
+     *                un elemento del primo insieme
+     * @param id2
+     *                un elemento del secondo insieme
+     * @return true se i due insiemi erano distinti e sono stati uniti
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non è compreso
+     *                                       tra 0 e capacity() - 1
+     * @throws IllegalArgumentException
+     *                                       se uno degli elementi non è
+     *                                       presente
+     */
+    public boolean union(long id1, long id2) {
+        long root1 = find(id1);
+        long root2 = find(id2);
+        if (root1 == root2)
+            return false;
+
+        int rank1 = rankOf(read(root1));
+        int rank2 = rankOf(read(root2));
+        if (rank1 > rank2)
+            write(root2, word(root1, rank2));
+        else {
+            write(root1, word(root2, rank1));
+            if (rank1 == rank2)
+                write(root2, word(root2, rank2 + 1));
+        }
+        setCount--;
+        return true;
+    }
+
+    /**
+     * Determina se due elementi fanno parte dello stesso insieme.
+     *
+     * @param id1
+     *                il primo elemento
+     * @param id2
+     *                il secondo elemento
+     * @return true se i due elementi fanno parte dello stesso insieme
+     * @throws IndexOutOfBoundsException
+     *                                       se uno degli indici non è compreso
+     *                                       tra 0 e capacity() - 1
+     * @throws IllegalArgumentException
+     *                                       se uno degli elementi non è
+     *                                       presente
+     */
+    public boolean sameSet(long id1, long id2) {
+        return find(id1) == find(id2);
+    }
+
+    /**
+     * Scrive su disco le modifiche ancora in memoria.
+     */
+    public void flush() {
+        header.putLong(ELEMENTS_POSITION, elementCount);
+        header.putLong(SETS_POSITION, setCount);
+        header.force();
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+
+    /*
+     * Le regioni mappate vengono rilasciate dalla JVM quando i buffer non sono
+     * più raggiungibili: dopo close() l'oggetto non va più usato.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private long read(long id) {
+        return segments[(int) (id >>> SEGMENT_SHIFT)].getLong((int) ((id & SEGMENT_MASK) << 3));
+    }
+
+    private void write(long id, long word) {
+        segments[(int) (id >>> SEGMENT_SHIFT)].putLong((int) ((id & SEGMENT_MASK) << 3), word);
+    }
+
+    private static long word(long parent, int rank) {
+        return ((long) rank << 56) | (parent + 1);
+    }
+
+    private static long parentOf(long word) {
+        return (word & PARENT_MASK) - 1;
+    }
+
+    private static int rankOf(long word) {
+        return (int) (word >>> 56);
+    }
+
+    private long checkPresent(long id) {
+        checkIndex(id);
+
+        long word = read(id);
+        if (word == 0)
+            throw new IllegalArgumentException("Elemento non presente: " + id + ".");
+        return word;
+    }
+
+    private void checkIndex(long id) {
+        if (id < 0 || id >= capacity)
+            throw new IndexOutOfBoundsException("Indice non valido: " + id + ".");
+    }
+}
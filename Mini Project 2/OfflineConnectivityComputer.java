@@ -0,0 +1,257 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Classe che risponde offline a domande di connettività su un grafo non
+ * orientato i cui archi vengono aggiunti e cancellati nel tempo.
+ * <p>
+ * Si registra prima una storia di operazioni: aggiunte di archi, cancellazioni
+ * di archi e domande "i nodi u e v sono connessi in questo istante?". Il
+ * metodo {@link #computeAnswers(Graph)} risponde poi a tutte le domande
+ * insieme. Il tempo è scandito dalle domande: ogni arco è presente in un
+ * intervallo di domande consecutive, e ogni intervallo viene inserito in un
+ * albero di segmenti costruito sugli indici delle domande. Una visita in
+ * profondità dell'albero applica le unioni di ogni nodo entrando e le annulla
+ * uscendo, tramite {@link RollbackForestDisjointSets}. Con q domande e m
+ * intervalli il costo complessivo è O((q + m log q) log n).
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ *
+ * @param <L>
+ *                tipo delle etichette dei nodi del grafo
+ */
+public class OfflineConnectivityComputer<L> {
+
+    /*
+     * Storia delle operazioni registrate, nell'ordine in cui sono state
+     * registrate.
+     */
+    private final List<Event<L>> history;
+
+    /*
+     * Numero di domande registrate.
+     */
+    private int queryCount;
+
+    /*
+     * Classe interna che rappresenta un'operazione della storia. Per le
+     * aggiunte e le cancellazioni è valorizzato edge, per le domande node1 e
+     * node2.
+     */
+    private static class Event<L> {
+        private final EventType type;
+        private final GraphEdge<L> edge;
+        private final GraphNode<L> node1;
+        private final GraphNode<L> node2;
+
+        private Event(EventType type, GraphEdge<L> edge, GraphNode<L> node1,
+                      GraphNode<L> node2) {
+            this.type = type;
+            this.edge = edge;
+            this.node1 = node1;
+            this.node2 = node2;
+        }
+    }
+
+    private enum EventType {
+        ADD, REMOVE, QUERY
+    }
+
+    /**
+     * Crea un calcolatore con una storia vuota.
+     */
+    public OfflineConnectivityComputer() {
+        this.history = new ArrayList<>();
+        this.queryCount = 0;
+    }
+
+    /**
+     * Registra l'aggiunta di un arco. Se l'arco è già presente in quel momento
+     * l'operazione non ha effetto.
+     *
+     * @param edge
+     *                 l'arco aggiunto
+     * @throws NullPointerException
+     *                                      se l'arco è nullo
+     * @throws IllegalArgumentException
+     *                                      se l'arco è orientato
+     */
+    public void addEdge(GraphEdge<L> edge) {
+        checkEdge(edge);
+        history.add(new Event<>(EventType.ADD, edge, null, null));
+    }
+
+    /**
+     * Registra la cancellazione di un arco.
+     *
+     * @param edge
+     *                 l'arco cancellato
+     * @throws NullPointerException
+     *                                      se l'arco è nullo
+     * @throws IllegalArgumentException
+     *                                      se l'arco è orientato
+     */
+    public void removeEdge(GraphEdge<L> edge) {
+        checkEdge(edge);
+        history.add(new Event<>(EventType.REMOVE, edge, null, null));
+    }
+
+    /**
+     * Registra la domanda "i due nodi sono connessi in questo istante?". Le
+     * risposte vengono restituite da {@link #computeAnswers(Graph)}
+     * nell'ordine in cui le domande sono state registrate.
+     *
+     * @param node1
+     *                  il primo nodo
+     * @param node2
+     *                  il secondo nodo
+     * @throws NullPointerException
+     *                                  se uno dei due nodi è nullo
+     */
+    public void query(GraphNode<L> node1, GraphNode<L> node2) {
+        if (node1 == null || node2 == null)
+            throw new NullPointerException("Nodo nullo.");
+
+        history.add(new Event<>(EventType.QUERY, null, node1, node2));
+        queryCount++;
+    }
+
+    /**
+     * Cancella la storia registrata.
+     */
+    public void clear() {
+        history.clear();
+        queryCount = 0;
+    }
+
+    /**
+     * Risponde a tutte le domande registrate. I nodi sono quelli del grafo g e
+     * gli archi di g sono considerati presenti fin dall'inizio della storia.
+     * Il grafo non viene modificato.
+     *
+     * @param g
+     *              un grafo non orientato
+     * @return la lista delle risposte, una per ogni domanda registrata e nello
+     *         stesso ordine
+     * @throws NullPointerException
+     *                                      se il grafo passato è nullo
+     * @throws IllegalArgumentException
+     *                                      se il grafo passato è orientato, se
+     *                                      viene cancellato un arco non
+     *                                      presente in quel momento o se un
+     *                                      arco o una domanda riguardano nodi
+     *                                      che non appartengono al grafo
+     */
+    public List<Boolean> computeAnswers(Graph<L> g) {
+        if (g == null)
+            throw new NullPointerException("Grafo nullo.");
+        if (g.isDirected())
+            throw new IllegalArgumentException("Grafo orientato.");
+
+        List<Boolean> toReturn = new ArrayList<>(queryCount);
+        if (queryCount == 0)
+            return toReturn;
+
+        RollbackForestDisjointSets<GraphNode<L>> sets = new RollbackForestDisjointSets<>();
+        for (GraphNode<L> element : g.getNodes())
+            sets.makeSet(element);
+
+        // Ogni foglia dell'albero di segmenti corrisponde a una domanda
+        List<List<GraphEdge<L>>> segmentTree = new ArrayList<>(4 * queryCount);
+        for (int i = 0; i < 4 * queryCount; i++)
+            segmentTree.add(null);
+
+        // Istante (indice della prossima domanda) da cui ogni arco è presente
+        Map<GraphEdge<L>, Integer> aliveSince = new HashMap<>();
+        for (GraphEdge<L> element : g.getEdges())
+            aliveSince.put(element, 0);
+
+        List<Event<L>> queries = new ArrayList<>(queryCount);
+        for (Event<L> event : history) {
+            int now = queries.size();
+            switch (event.type) {
+                case ADD:
+                    if (!aliveSince.containsKey(event.edge))
+                        aliveSince.put(event.edge, now);
+                    break;
+                case REMOVE:
+                    Integer since = aliveSince.remove(event.edge);
+                    if (since == null)
+                        throw new IllegalArgumentException(
+                                "Cancellazione di un arco non presente: " + event.edge + ".");
+                    insert(segmentTree, 1, 0, queryCount - 1, since, now - 1, event.edge);
+                    break;
+                default:
+                    queries.add(event);
+            }
+        }
+        for (Map.Entry<GraphEdge<L>, Integer> element : aliveSince.entrySet())
+            insert(segmentTree, 1, 0, queryCount - 1, element.getValue(), queryCount - 1,
+                    element.getKey());
+
+        visit(segmentTree, 1, 0, queryCount - 1, sets, queries, toReturn);
+        return toReturn;
+    }
+
+    /*
+     * Inserisce l'arco nei nodi dell'albero di segmenti che coprono
+     * l'intervallo di domande [from, to]. Gli intervalli vuoti vengono
+     * ignorati.
+     */
+    private void insert(List<List<GraphEdge<L>>> segmentTree, int position, int low,
+                        int high, int from, int to, GraphEdge<L> edge) {
+        if (from > high || to < low || from > to)
+            return;
+
+        if (from <= low && high <= to) {
+            if (segmentTree.get(position) == null)
+                segmentTree.set(position, new ArrayList<>());
+            segmentTree.get(position).add(edge);
+            return;
+        }
+
+        int middle = (low + high) / 2;
+        insert(segmentTree, 2 * position, low, middle, from, to, edge);
+        insert(segmentTree, 2 * position + 1, middle + 1, high, from, to, edge);
+    }
+
+    /*
+     * Visita in profondità: applica le unioni degli archi del nodo, risponde
+     * alla domanda se il nodo è una foglia, e infine annulla le unioni.
+     */
+    private void visit(List<List<GraphEdge<L>>> segmentTree, int position, int low,
+                       int high, RollbackForestDisjointSets<GraphNode<L>> sets,
+                       List<Event<L>> queries, List<Boolean> answers) {
+        int checkpoint = sets.checkpoint();
+
+        if (segmentTree.get(position) != null)
+            for (GraphEdge<L> element : segmentTree.get(position))
+                sets.union(element.getNode1(), element.getNode2());
+
+        if (low == high) {
+            Event<L> query = queries.get(low);
+            if (!sets.isPresent(query.node1) || !sets.isPresent(query.node2))
+                throw new IllegalArgumentException("Nodo non appartenente al grafo.");
+            answers.add(sets.findSet(query.node1).equals(sets.findSet(query.node2)));
+        } else {
+            int middle = (low + high) / 2;
+            visit(segmentTree, 2 * position, low, middle, sets, queries, answers);
+            visit(segmentTree, 2 * position + 1, middle + 1, high, sets, queries, answers);
+        }
+
+        sets.rollback(checkpoint);
+    }
+
+    private void checkEdge(GraphEdge<L> edge) {
+        if (edge == null)
+            throw new NullPointerException("Arco nullo.");
+        if (edge.isDirected())
+            throw new IllegalArgumentException("Arco orientato.");
+    }
+}
@@ -61,7 +61,7 @@ public class PrimMSP<L> {
      *              con pesi negativi
      */
     public void computeMSP(Graph<L> g, GraphNode<L> s) {
-        checkParameters(g, s);
+        checkParams(g, s);
 
         for (GraphNode<L> element : g.getNodes()) {
             element.setColor(0);
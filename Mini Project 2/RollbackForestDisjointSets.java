@@ -0,0 +1,187 @@
+package it.unicam.cs.asdl2122.mp2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+//ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
+
+/**
+ * Variante di {@link ForestDisjointSets} le cui operazioni possono essere
+ * annullate. Ogni makeSet e ogni unione effettiva viene registrata in una pila
+ * di annullamento; {@link #checkpoint()} restituisce la posizione corrente
+ * nella pila e {@link #rollback(int)} riporta la struttura allo stato in cui
+ * si trovava in quel punto.
+ * <p>
+ * Per poter annullare un'unione in tempo costante il find-set non applica la
+ * compressione del cammino: resta solo l'euristica "unione per rango", che
+ * garantisce alberi di altezza al più logaritmica e quindi un costo
+ * O(log n) sia per findSet sia per union.
+ *
+ * @author Luca Tesei (template)
+ *     ** Simone Cisca simone.cisca@studeti.unicam.it ** (implementazione)
+ *
+ * @param <E>
+ *                il tipo degli elementi degli insiemi disgiunti
+ */
+public class RollbackForestDisjointSets<E> extends ForestDisjointSets<E> {
+
+    /*
+     * Pila delle operazioni da annullare. La variabile è protected
+     * unicamente per permettere i test JUnit.
+     */
+    protected List<Operation<E>> undoStack;
+
+    /*
+     * Classe interna statica che rappresenta un'operazione registrata nella
+     * pila. Per un makeSet child e parent coincidono con il nodo creato; per
+     * un'unione child è la radice collegata sotto parent.
+     */
+    protected static class Operation<E> {
+        protected final Node<E> child;
+        protected final Node<E> parent;
+        protected final boolean rankIncreased;
+
+        protected Operation(Node<E> child, Node<E> parent, boolean rankIncreased) {
+            this.child = child;
+            this.parent = parent;
+            this.rankIncreased = rankIncreased;
+        }
+    }
+
+    /**
+     * Costruisce una foresta vuota d'insiemi disgiunti con pila di
+     * annullamento vuota.
+     */
+    public RollbackForestDisjointSets() {
+        super();
+        undoStack = new ArrayList<>();
+    }
+
+    @Override
+    public void makeSet(E e) {
+        super.makeSet(e);
+
+        Node<E> node = currentElements.get(e);
+        undoStack.add(new Operation<>(node, node, false));
+    }
+
+    @Override
+    public void makeSets(Collection<? extends E> elements) {
+        super.makeSets(elements);
+
+        for (E element : elements) {
+            Node<E> node = currentElements.get(element);
+            undoStack.add(new Operation<>(node, node, false));
+        }
+    }
+
+    /*
+     * Risale fino alla radice senza modificare l'albero.
+     */
+    @Override
+    public E findSet(E e) {
+        if (e == null)
+            throw new NullPointerException("Elemento nullo.");
+
+        Node<E> node = currentElements.get(e);
+        if (node == null)
+            return null;
+
+        return findRoot(node).item;
+    }
+
+    /*
+     * Stessa politica di ForestDisjointSets: a parità di rango il
+     * rappresentante dell'unione è quello dell'insieme di cui fa parte il
+     * secondo nodo. Le unioni di nodi già nello stesso insieme non vengono
+     * registrate. Ridefinendo link anche union e unionAll vengono registrate.
+     */
+    @Override
+    protected boolean link(Node<E> node1, Node<E> node2) {
+        Node<E> rep1 = findRoot(node1);
+        Node<E> rep2 = findRoot(node2);
+        if (rep1 == rep2)
+            return false;
+
+        Node<E> child = rep1.rank > rep2.rank ? rep2 : rep1;
+        Node<E> parent = child == rep1 ? rep2 : rep1;
+        boolean rankIncreased = rep1.rank == rep2.rank;
+
+        child.parent = parent;
+        if (rankIncreased)
+            parent.rank++;
+        currentRepresentatives.remove(child.item);
+        swapNext(child, parent);
+
+        undoStack.add(new Operation<>(child, parent, rankIncreased));
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        undoStack.clear();
+    }
+
+    /**
+     * Restituisce un punto di ripristino che rappresenta lo stato corrente
+     * della struttura.
+     *
+     * @return il punto di ripristino, da passare a {@link #rollback(int)}
+     */
+    public int checkpoint() {
+        return undoStack.size();
+    }
+
+    /**
+     * Annulla, in ordine inverso, tutte le operazioni effettuate dopo la
+     * creazione del punto di ripristino dato. Ogni operazione annullata costa
+     * O(1).
+     *
+     * @param checkpoint
+     *                       un punto di ripristino restituito da
+     *                       {@link #checkpoint()}
+     * @throws IllegalArgumentException
+     *                                      se il punto di ripristino non è
+     *                                      valido, cioè è negativo o successivo
+     *                                      allo stato corrente
+     */
+    public void rollback(int checkpoint) {
+        if (checkpoint < 0 || checkpoint > undoStack.size())
+            throw new IllegalArgumentException("Punto di ripristino non valido.");
+
+        while (undoStack.size() > checkpoint) {
+            Operation<E> last = undoStack.remove(undoStack.size() - 1);
+
+            if (last.child == last.parent) {
+                // Annullo un makeSet
+                currentElements.remove(last.child.item);
+                currentRepresentatives.remove(last.child.item);
+            } else {
+                // Annullo un'unione: lo scambio dei successori è l'inverso di se stesso
+                swapNext(last.child, last.parent);
+                last.child.parent = last.child;
+                if (last.rankIncreased)
+                    last.parent.rank--;
+                currentRepresentatives.add(last.child.item);
+            }
+        }
+    }
+
+    /*
+     * Risale fino alla radice senza comprimere il cammino, in modo che ogni
+     * unione possa essere annullata ripristinando un solo puntatore.
+     */
+    @Override
+    protected Node<E> findRoot(Node<E> node) {
+        while (node.parent != node)
+            node = node.parent;
+        return node;
+    }
+
+    private void swapNext(Node<E> node1, Node<E> node2) {
+        Node<E> temp = node1.next;
+        node1.next = node2.next;
+        node2.next = temp;
+    }
+}
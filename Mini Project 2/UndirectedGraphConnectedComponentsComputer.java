@@ -2,14 +2,16 @@ package it.unicam.cs.asdl2122.mp2;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 //ATTENZIONE: è vietato includere import a pacchetti che non siano della Java SE
 
 /**
  * Classe singleton che realizza un calcolatore delle componenti connesse di un
  * grafo non orientato utilizzando una struttura dati efficiente (fornita dalla
- * classe {@ForestDisjointSets<GraphNode<L>>}) per gestire insiemi disgiunti di
- * nodi del grafo che sono, alla fine del calcolo, le componenti connesse.
+ * classe {@code IntForestDisjointSets<GraphNode<L>>}) per gestire insiemi
+ * disgiunti di nodi del grafo che sono, alla fine del calcolo, le componenti
+ * connesse.
  *
  * @param <L> il tipo delle etichette dei nodi del grafo
  * @author Luca Tesei (template)
@@ -20,13 +22,13 @@ public class UndirectedGraphConnectedComponentsComputer<L> {
     /*
      * Struttura dati per gli insiemi disgiunti.
      */
-    private ForestDisjointSets<GraphNode<L>> f;
+    private IntForestDisjointSets<GraphNode<L>> f;
 
     /**
      * Crea un calcolatore di componenti connesse.
      */
     public UndirectedGraphConnectedComponentsComputer() {
-        this.f = new ForestDisjointSets<>();
+        this.f = new IntForestDisjointSets<>();
     }
 
     /**
@@ -45,19 +47,39 @@ public class UndirectedGraphConnectedComponentsComputer<L> {
         //Matrice da ritornare
         Set<Set<GraphNode<L>>> toReturn = new HashSet<>();
         f.clear();
-        for (GraphNode<L> element : g.getNodes())
-            f.makeSet(element);
+        f.makeSets(g.getNodes());
 
-        for (GraphEdge<L> element : g.getEdges())
-            if (f.findSet(element.getNode1()) != f.findSet(element.getNode2()))
-                f.union(element.getNode1(), element.getNode2());
+        // Traduco gli archi in coppie d'indici e li unisco in blocco
+        Set<GraphEdge<L>> edges = g.getEdges();
+        int[] pairs = new int[2 * edges.size()];
+        int k = 0;
+        for (GraphEdge<L> element : edges) {
+            pairs[k++] = f.indexOf(element.getNode1());
+            pairs[k++] = f.indexOf(element.getNode2());
+        }
+        f.unionAll(pairs, ForkJoinPool.commonPool());
 
-        for (GraphNode<L> element : f.getCurrentRepresentatives())
-            toReturn.add(f.getCurrentElementsOfSetContaining(element));
+        /*
+         * Raggruppo i nodi in base all'indice della radice del loro albero con
+         * un'unica passata su tutti gli indici: components[r] è la componente
+         * la cui radice ha indice r.
+         */
+        @SuppressWarnings("unchecked")
+        Set<GraphNode<L>>[] components = (Set<GraphNode<L>>[]) new Set<?>[f.size()];
+        for (int i = 0; i < f.size(); i++) {
+            int root = f.find(i);
+            if (components[root] == null)
+                components[root] = new HashSet<>();
+            components[root].add(f.getElement(i));
+        }
+
+        // Le componenti vanno inserite solo dopo essere state riempite
+        for (Set<GraphNode<L>> component : components)
+            if (component != null)
+                toReturn.add(component);
 
         return toReturn;
     }
-ù
 
     /**
      * Metodo per il controllo del parametro